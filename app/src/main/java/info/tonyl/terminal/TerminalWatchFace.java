@@ -4,36 +4,49 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
-import android.content.SharedPreferences;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
-import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Debug;
 import android.os.Handler;
 import android.os.Message;
+import android.os.SystemClock;
 import android.support.wearable.complications.ComplicationData;
 import android.support.wearable.complications.ComplicationText;
 import android.support.wearable.complications.SystemProviders;
 import android.support.wearable.watchface.CanvasWatchFaceService;
 import android.support.wearable.watchface.WatchFaceStyle;
 import android.text.TextPaint;
+import android.util.Log;
 import android.view.SurfaceHolder;
-
-import androidx.core.content.res.ResourcesCompat;
+import android.view.WindowInsets;
 
 import java.lang.ref.WeakReference;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.List;
-import java.util.Locale;
-import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
 
 import info.tonyl.terminal.constants.ComplicationDataConstants;
-import info.tonyl.terminal.constants.Settings;
-import info.tonyl.terminal.constants.TemperatureConstants;
+import info.tonyl.terminal.core.TerminalAnimator;
+import info.tonyl.terminal.core.TerminalRenderer;
+import info.tonyl.terminal.core.TextRefreshTracker;
+import info.tonyl.terminal.core.TickScheduler;
+import info.tonyl.terminal.core.TimeSource;
+import info.tonyl.terminal.core.UpdateCoalescer;
+import info.tonyl.terminal.history.ComplicationHistory;
+import info.tonyl.terminal.history.HistoryStore;
+import info.tonyl.terminal.perf.PerfStats;
+import info.tonyl.terminal.perf.PowerCounters;
+import info.tonyl.terminal.render.CanvasTextSink;
+import info.tonyl.terminal.render.FontCache;
+import info.tonyl.terminal.render.GlyphAtlas;
+import info.tonyl.terminal.render.PaintTextMeasurer;
+import info.tonyl.terminal.render.RenderNodeTextSink;
+import info.tonyl.terminal.settings.SettingsSnapshot;
+import info.tonyl.terminal.settings.SettingsStore;
+import info.tonyl.terminal.text.CharText;
 
 /**
  * Analog watch face with a ticking second hand. In ambient mode, the second hand isn't
@@ -48,18 +61,42 @@ import info.tonyl.terminal.constants.TemperatureConstants;
  * https://codelabs.developers.google.com/codelabs/watchface/index.html#0
  */
 public class TerminalWatchFace extends CanvasWatchFaceService {
-
-    /*
-     * Updates rate in milliseconds for interactive mode. We update once a second to advance the
-     * second hand.
-     */
-    private static final long INTERACTIVE_UPDATE_RATE_MS = TimeUnit.SECONDS.toMillis(1);
+    private static final String TAG = TerminalWatchFace.class.getSimpleName();
 
     /**
      * Handler message id for updating the time periodically in interactive mode.
      */
     private static final int MSG_UPDATE_TIME = 0;
 
+    /**
+     * Handler message id for drawing complication updates that couldn't wait for the next frame.
+     */
+    private static final int MSG_COMPLICATION_FRAME = 1;
+
+    /**
+     * Handler message id for drawing the next frame of the terminal animation.
+     */
+    private static final int MSG_ANIMATION_FRAME = 2;
+
+    /**
+     * Whether to ask for a hardware canvas, so the interactive frame can be drawn by replaying
+     * display lists (RenderNode needs API 29). On a hardware canvas, PerfStats measures the CPU
+     * time per frame of that and of the software static layer for a while, and then keeps using
+     * whichever was cheaper. Otherwise (or if the canvas turns out not to be hardware accelerated
+     * after all) it's always drawn from the software static layer.
+     */
+    private static final boolean USE_RENDER_NODES = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Start loading the font, settings and history as early as possible, so they're hopefully
+        // ready by the first frame
+        FontCache.preload(this);
+        SettingsStore.get(this);
+        HistoryStore.get(this);
+    }
+
     @Override
     public Engine onCreateEngine() {
         return new Engine();
@@ -80,6 +117,12 @@ public class TerminalWatchFace extends CanvasWatchFaceService {
                     case MSG_UPDATE_TIME:
                         engine.handleUpdateTimeMessage();
                         break;
+                    case MSG_COMPLICATION_FRAME:
+                        engine.handleComplicationFrameMessage();
+                        break;
+                    case MSG_ANIMATION_FRAME:
+                        engine.handleAnimationFrameMessage();
+                        break;
                 }
             }
         }
@@ -90,99 +133,143 @@ public class TerminalWatchFace extends CanvasWatchFaceService {
     public static final int TEMP_COMP_ID = 2;
     public final int[] COMP_IDS = {BATTERY_COMP_ID, STEP_COMP_ID, TEMP_COMP_ID};
 
-    private static String mStartMessage;
-    private static String mEndMessage;
-    private static SharedPreferences mPrefs;
+    private static final PerfStats mPerfStats = new PerfStats();
+    // Complication ids run from 0 up to TEMP_COMP_ID, so there's one slot each
+    private static final PowerCounters mPowerCounters = new PowerCounters(TEMP_COMP_ID + 1);
 
-    public static void updateUsernameMessages(Context context) {
-        String username = getPrefs().getString(
-                Settings.SETTING_USERNAME, context.getString(R.string.default_username));
-        mStartMessage = username + context.getString(R.string.start_message_postfix);
-        mEndMessage = username + context.getString(R.string.end_message_postfix);
+    public static PerfStats getPerfStats() {
+        return mPerfStats;
     }
 
-    public static SharedPreferences getPrefs() {
-        return mPrefs;
+    public static PowerCounters getPowerCounters() {
+        return mPowerCounters;
     }
 
-    private class Engine extends CanvasWatchFaceService.Engine {
+    private class Engine extends CanvasWatchFaceService.Engine
+            implements FontCache.Listener, SettingsStore.Listener {
+
+        Engine() {
+            super(USE_RENDER_NODES);
+        }
 
         private final Handler mUpdateTimeHandler = new EngineHandler(this);
-        private Calendar mCalendar;
+        private final TerminalRenderer mRenderer = new TerminalRenderer(TimeSource.SYSTEM);
         private final BroadcastReceiver mTimeZoneReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                mCalendar.setTimeZone(TimeZone.getDefault());
-                invalidate();
+                mRenderer.onTimezoneChanged();
+                invalidateContent();
             }
         };
         private boolean mRegisteredTimeZoneReceiver = false;
+        private SettingsStore mSettingsStore;
+        private SettingsSnapshot mSettings;
+        private String mStartMessagePostfix;
+        private String mEndMessagePostfix;
 
         // RELEVANT =======================================
-        private static final float TEXT_SIZE_RATIO = 0.0675f;
-        private static final float TEXT_X_RATIO = 0.095f;
-        private static final float TEXT_Y_ADJUST = 0.025f;
-
-        private static final int BASE_TEXT_COLOR = Color.WHITE;
-        private static final int TIME_COLOR = Color.GREEN;
-        private static final int DATE_COLOR = Color.CYAN;
-        private static final int BATTERY_COLOR = Color.MAGENTA;
-        private static final int STEP_COLOR = Color.RED;
-        private static final int TEMP_COLOR = Color.YELLOW;
-        private int[] PAINT_COLORS = {BASE_TEXT_COLOR, TIME_COLOR, DATE_COLOR, BATTERY_COLOR, STEP_COLOR, TEMP_COLOR};
-
-        private static final int AMBIENT_COLOR = Color.GRAY;
-
         private boolean mAmbient;
-        private TextPaint[] mTextPaints;
-        private static final int NUM_PAINTS = 6;
-        private static final int BASE_PAINT = 0;
-        private static final int TIME_PAINT = 1;
-        private static final int DATE_PAINT = 2;
-        private static final int BATTERY_PAINT = 3;
-        private static final int STEP_PAINT = 4;
-        private static final int TEMP_PAINT = 5;
-
-        private List<String> mMessages;
-        private float mTextX;
-        private float mExtraTextX;
-        private float mTextY;
-        private float mCenterX;
-        private float mCenterY;
-        private String mBatteryVisual = ComplicationDataConstants.NO_INFO;
-        private String mStepString = ComplicationDataConstants.NO_INFO;
-        private String mTempString = ComplicationDataConstants.NO_INFO;
-
-        private static final String HM_FORMAT_STRING = "hh:mm:";
-        private static final String TZ_FORMAT_STRING = " z";
-        private static final String D_FORMAT_STRING = "yyyy-MM-dd EEE";
-        private static final String AMPM_FORMAT_STRING = " a";
-        private SimpleDateFormat mHourMinuteFormat = new SimpleDateFormat(HM_FORMAT_STRING, Locale.getDefault());
-        private SimpleDateFormat mTimezoneFormat = new SimpleDateFormat(TZ_FORMAT_STRING, Locale.getDefault());
-        private SimpleDateFormat mDateFormat = new SimpleDateFormat(D_FORMAT_STRING, Locale.getDefault());
-        private SimpleDateFormat mAmPmFormat = new SimpleDateFormat(AMPM_FORMAT_STRING, Locale.getDefault());
-
-        private int mMinute;
-        private int mHour;
-        private TimeZone mTimezone;
-        private String mHourMinuteString;
-        private String mTimezoneString;
-        private String mAmPmString;
-        private StringBuilder mTimeSb = new StringBuilder();
-
-        private int mDay;
-        private String mDateString;
+        private final TextPaint[] mTextPaints = new TextPaint[TerminalRenderer.NUM_STYLES];
+        private int mWidth;
+        private int mHeight;
+
+        // For measuring how long it takes from being created to showing something
+        private long mCreateTime;
+        private boolean mFirstFrameDrawn;
+
+        // Draw the values by copying glyphs out of a pre-rendered atlas instead of with drawText. Off,
+        // since the render harness's comparison has the atlas 1.2-2x slower at every screen size
+        private static final boolean USE_GLYPH_ATLAS = false;
+        private final GlyphAtlas[] mGlyphAtlases = new GlyphAtlas[TerminalRenderer.NUM_STYLES];
+
+        // Show the draw time percentiles as an extra line on debug builds
+        private static final boolean SHOW_PERF = BuildConfig.DEBUG;
+
+        // When the next tick is supposed to happen, to measure how late it actually was
+        private long mExpectedTickTime;
+
+        private UpdateCoalescer mUpdateCoalescer;
+        private final TickScheduler mTickScheduler = new TickScheduler();
+        private final TerminalAnimator mAnimator = new TerminalAnimator();
+
+        // Past battery levels and step counts, for the estimates shown after them
+        private HistoryStore mHistoryStore;
+        private final CharText mSuffix = new CharText(16);
+
+        // The last data for each slot, so time-dependent text can be worked out again when it
+        // changes, without waiting for the provider to push it
+        private final ComplicationData[] mComplicationData = new ComplicationData[TEMP_COMP_ID + 1];
+        private final TextRefreshTracker mTextRefreshTracker = new TextRefreshTracker(TEMP_COMP_ID + 1);
+
+        // Everything that doesn't change between frames (the background, the username lines and the
+        // labels) is drawn once into this layer, and each frame only draws the values on top of it
+        private Bitmap mStaticLayer;
+        private final CanvasTextSink mStaticSink = new CanvasTextSink(mTextPaints, mGlyphAtlases, USE_GLYPH_ATLAS);
+        private final CanvasTextSink mFrameSink = new CanvasTextSink(mTextPaints, mGlyphAtlases, USE_GLYPH_ATLAS);
+        private boolean mStaticLayerDirty = true;
+
+        // In ambient mode the whole frame only changes once a minute (or on a complication update),
+        // so it's drawn into this and every ambient frame in between just copies it to the screen
+        private Bitmap mAmbientFrame;
+        private final CanvasTextSink mAmbientSink = new CanvasTextSink(mTextPaints, mGlyphAtlases, USE_GLYPH_ATLAS);
+
+        // Only made if USE_RENDER_NODES is on
+        private RenderNodeTextSink mRenderNodeSink;
+        // Which way the last interactive frame was drawn, to record its CPU time against
+        private boolean mDrewRenderNodes;
+        private boolean mAmbientFrameDirty = true;
+
+        // To protect against burn-in, the ambient frame is moved around by a few pixels each minute
+        private static final int BURN_IN_SHIFT_PX = 3;
+        private static final int[] BURN_IN_SHIFTS_X = {0, 1, 1, 0, -1, -1, -1, 0, 1};
+        private static final int[] BURN_IN_SHIFTS_Y = {0, 0, 1, 1, 1, 0, -1, -1, -1};
+        private boolean mBurnInProtection;
+        private int mAmbientShiftX;
+        private int mAmbientShiftY;
         // ================================================
 
         @Override
         public void onCreate(SurfaceHolder holder) {
             super.onCreate(holder);
+            mCreateTime = SystemClock.elapsedRealtime();
+            mUpdateCoalescer = new UpdateCoalescer(
+                    getResources().getInteger(R.integer.complication_max_staleness_ms));
+
+            // Starts with the defaults if the settings haven't loaded yet, and catches up when they
+            // have
+            mStartMessagePostfix = getString(R.string.start_message_postfix);
+            mEndMessagePostfix = getString(R.string.end_message_postfix);
+            mSettingsStore = SettingsStore.get(TerminalWatchFace.this);
+            applySettings(mSettingsStore.getSnapshot());
+            mSettingsStore.addListener(this);
+            mHistoryStore = HistoryStore.get(TerminalWatchFace.this);
+
+            // If the font isn't ready yet, start with a stand-in so there's something on screen
+            // right away, and switch over once it's loaded
+            Typeface typeface = FontCache.getTypeface();
+            if (typeface == null) {
+                typeface = Typeface.MONOSPACE;
+                FontCache.preload(TerminalWatchFace.this);
+                FontCache.addListener(this);
+            }
 
-            mPrefs = getApplication().getSharedPreferences(Settings.PREF_NAME, MODE_PRIVATE);
-            updateUsernameMessages(getApplicationContext());
+            // Init paint objects (they're only resized after this)
+            for (int i = 0; i < TerminalRenderer.NUM_STYLES; i++) {
+                TextPaint p = new TextPaint();
+                p.setTypeface(typeface);
+                p.setAntiAlias(true);
+                p.setTextAlign(Paint.Align.LEFT);
+                p.setColor(TerminalRenderer.getColor(i, false));
 
-            mCalendar = Calendar.getInstance();
-            mTextPaints = new TextPaint[NUM_PAINTS];
+                mTextPaints[i] = p;
+            }
+            if (USE_RENDER_NODES) {
+                mRenderNodeSink = new RenderNodeTextSink(
+                        new CanvasTextSink(mTextPaints, mGlyphAtlases, USE_GLYPH_ATLAS));
+            }
+            if (SHOW_PERF) {
+                mRenderer.setPerfStats(mPerfStats);
+            }
 
             setActiveComplications(COMP_IDS);
 
@@ -193,14 +280,38 @@ public class TerminalWatchFace extends CanvasWatchFaceService {
         @Override
         public void onDestroy() {
             mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
-            mPrefs = null;
+            mUpdateTimeHandler.removeMessages(MSG_COMPLICATION_FRAME);
+            mUpdateTimeHandler.removeMessages(MSG_ANIMATION_FRAME);
+            FontCache.removeListener(this);
+            if (mStaticLayer != null) {
+                mStaticLayer.recycle();
+                mStaticLayer = null;
+            }
+            if (mAmbientFrame != null) {
+                mAmbientFrame.recycle();
+                mAmbientFrame = null;
+            }
+            recycleGlyphAtlases();
+            if (mRenderNodeSink != null) {
+                mRenderNodeSink.invalidate();
+            }
+            mSettingsStore.removeListener(this);
+            mHistoryStore.flush();
             super.onDestroy();
         }
 
+        @Override
+        public void onPropertiesChanged(Bundle properties) {
+            super.onPropertiesChanged(properties);
+            mBurnInProtection = properties.getBoolean(PROPERTY_BURN_IN_PROTECTION, false);
+            mAmbientFrameDirty = true;
+        }
+
         @Override
         public void onTimeTick() {
             super.onTimeTick();
-            invalidate();
+            refreshTexts(System.currentTimeMillis());
+            invalidateContent();
         }
 
         @Override
@@ -208,215 +319,326 @@ public class TerminalWatchFace extends CanvasWatchFaceService {
             super.onAmbientModeChanged(inAmbientMode);
             mAmbient = inAmbientMode;
 
-            if (mAmbient) {
-                for (TextPaint p : mTextPaints) {
-                    p.setAntiAlias(false);
-                    p.setColor(AMBIENT_COLOR);
-                }
-            } else {
-                for (int i = 0; i < NUM_PAINTS; i++) {
-                    mTextPaints[i].setAntiAlias(true);
-                    mTextPaints[i].setColor(PAINT_COLORS[i]);
-                }
+            for (int i = 0; i < TerminalRenderer.NUM_STYLES; i++) {
+                mTextPaints[i].setAntiAlias(!mAmbient);
+                mTextPaints[i].setColor(TerminalRenderer.getColor(i, mAmbient));
             }
+            mStaticLayerDirty = true;
+            mAmbientFrameDirty = true;
 
             updateTimer();
+            updateAnimation();
         }
 
         @Override
         public void onComplicationDataUpdate(
                 int complicationId, ComplicationData complicationData) {
+            long now = System.currentTimeMillis();
+            ComplicationHistory history = mHistoryStore.getHistory();
+            mSuffix.clear();
+            if (complicationId >= 0 && complicationId < mComplicationData.length) {
+                mComplicationData[complicationId] = complicationData;
+            }
+
+            boolean changed;
+            if (complicationData.getType() == ComplicationData.TYPE_RANGED_VALUE) {
+                float value = complicationData.getValue();
+                float min = complicationData.getMinValue();
+                float max = complicationData.getMaxValue();
+                if (complicationId == BATTERY_COMP_ID && max > min) {
+                    history.addBattery(now, (value - min) / (max - min) * 100);
+                    history.appendBatteryRemaining(now, mSuffix);
+                    mHistoryStore.onChanged();
+                }
+
+                // Any slot can show a ranged value, they're all drawn as bars
+                changed = mRenderer.setRangedValue(getLineFor(complicationId), value, min, max, mSuffix);
+                mTextRefreshTracker.clear(complicationId);
+            } else {
+                String text = getShortText(complicationData, now);
+                if (complicationId == STEP_COMP_ID) {
+                    history.addSteps(now, text);
+                    mHistoryStore.onChanged();
+                }
+                changed = showText(complicationId, text, now);
+                mTextRefreshTracker.onShown(complicationId, now);
+            }
+            mPerfStats.recordComplicationUpdate();
+            mPerfStats.setTextCacheStats(mRenderer.getTextCacheHits(), mRenderer.getTextCacheMisses());
+            mPowerCounters.recordPush(now, complicationId);
+
+            // Providers often push the same value again, which doesn't need drawing at all
+            if (!changed) {
+                return;
+            }
+
+            // Instead of redrawing right away, wait for the next tick (or for more updates)
+            long nextFrameTime = shouldTimerBeRunning() && mExpectedTickTime != 0
+                    ? mExpectedTickTime : UpdateCoalescer.NO_FRAME;
+            long delayMs = mUpdateCoalescer.markDirty(now, nextFrameTime);
+            if (delayMs != UpdateCoalescer.NO_FRAME) {
+                mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_COMPLICATION_FRAME, delayMs);
+            }
+        }
+
+        @Override
+        public void onSettingsChanged(SettingsSnapshot settings) {
+            boolean secondsChanged = settings.showSeconds() != mSettings.showSeconds();
+            applySettings(settings);
+            invalidateContent();
+            if (secondsChanged) {
+                // Reschedule, since the next tick might be a long way off now
+                updateTimer();
+            }
+        }
+
+        private void applySettings(SettingsSnapshot settings) {
+            mSettings = settings;
+            mRenderer.set24Hour(settings.use24Hour());
+            mRenderer.setShowSeconds(settings.showSeconds());
+            mTickScheduler.setShowSeconds(settings.showSeconds());
+            mRenderer.setTemperatureUnit(settings.getTempUnit());
+
+            String username = settings.getUsername();
+            if (mRenderer.setUsernameMessages(username + mStartMessagePostfix, username + mEndMessagePostfix)) {
+                mStaticLayerDirty = true;
+                mAmbientFrameDirty = true;
+            }
+        }
+
+        private int getLineFor(int complicationId) {
             switch (complicationId) {
                 case BATTERY_COMP_ID:
-                    float battery = complicationData.getValue();
-                    int length = Math.round(battery / 10);
-                    StringBuilder sb = new StringBuilder("[");
-                    for (int i = 0; i < 10; i++) {
-                        sb.append(i < length ? "#" : ".");
-                    }
-                    sb.append("] ");
-                    sb.append(String.format(Locale.getDefault(), "%02.0f", battery));
-                    sb.append("%");
-                    mBatteryVisual = sb.toString();
-                    break;
+                    return TerminalRenderer.BATTERY_LINE;
                 case STEP_COMP_ID:
-                    mStepString = getShortText(complicationData);
-                    break;
+                    return TerminalRenderer.STEP_LINE;
                 case TEMP_COMP_ID:
-                    mTempString = getShortText(complicationData);
-                    // Only supports Fahrenheit at the moment
-                    mTempString = mTempString.replaceFirst(TemperatureConstants.TEMPERATURE_PATTERN_F, TemperatureConstants.TEMPERATURE_REPLACEMENT);
-                    break;
+                    return TerminalRenderer.TEMP_LINE;
+                default:
+                    throw new IllegalArgumentException("Unknown complication " + complicationId);
             }
-            invalidate();
         }
 
-        private String getShortText(ComplicationData data) {
+        /**
+         * Returns true if what's drawn for the complication changed.
+         */
+        private boolean showText(int complicationId, String text, long now) {
+            if (complicationId == TEMP_COMP_ID) {
+                return mRenderer.setTemperature(text);
+            }
+            mSuffix.clear();
+            if (complicationId == STEP_COMP_ID) {
+                mHistoryStore.getHistory().appendStepRate(now, mSuffix);
+            }
+            return mRenderer.setText(getLineFor(complicationId), text, mSuffix);
+        }
+
+        private String getShortText(ComplicationData data, long now) {
             // It is truly ridiculous the effort you have to go through just to get the goddamn string out of this thing
             ComplicationText text = data.getShortText();
-            if (text == null) {
+            if (text == null || !data.isActive(now)) {
                 return ComplicationDataConstants.NO_INFO;
             }
-            return text.getText(getApplicationContext(), System.currentTimeMillis()).toString();
+            return text.getText(getApplicationContext(), now).toString();
         }
 
-        @Override
-        public void onSurfaceChanged(SurfaceHolder holder, int format, int width, int height) {
-            super.onSurfaceChanged(holder, format, width, height);
-
-            // Calculate screen center
-            mCenterX = width / 2f;
-            mCenterY = height / 2f;
-
-            // Init paint objects
-            for (int i = 0; i < NUM_PAINTS; i++) {
-                TextPaint p = new TextPaint();
-                p.setTypeface(ResourcesCompat.getFont(getApplicationContext(), R.font.consolab));
-                p.setTextSize(height * TEXT_SIZE_RATIO);
-                p.setAntiAlias(true);
-                p.setTextAlign(Paint.Align.LEFT);
-                p.setColor(PAINT_COLORS[i]);
-
-                mTextPaints[i] = p;
+        /**
+         * Whether the data's text would come out different now than when it was last worked out,
+         * without any new data coming in: because it started or stopped being valid, or because the
+         * text itself changed.
+         */
+        private boolean hasTextChanged(ComplicationData data, long shownAt, long now) {
+            if (data.isActive(shownAt) != data.isActive(now)) {
+                return true;
             }
+            ComplicationText text = data.getShortText();
+            return text != null && !text.returnsSameText(shownAt, now);
+        }
 
-            // Set up text and calculate position values
-            mMessages = new ArrayList<>();
-            mMessages.add("[TIME] ");
-            mMessages.add("[DATE] ");
-            mMessages.add("[BATT] ");
-            mMessages.add("[STEP] ");
-            mMessages.add("[TEMP] ");
+        /**
+         * Works out the text again for any slot whose text has changed since it was last shown. Only
+         * ever called on a tick that was happening anyway, so time-dependent text never wakes the
+         * watch up on its own.
+         */
+        private void refreshTexts(long now) {
+            for (int id = 0; id < mTextRefreshTracker.getSlotCount(); id++) {
+                ComplicationData data = mComplicationData[id];
+                if (data == null || !mTextRefreshTracker.isShowingText(id)
+                        || !hasTextChanged(data, mTextRefreshTracker.getShownAt(id), now)) {
+                    continue;
+                }
+                if (showText(id, getShortText(data, now), now)) {
+                    mAmbientFrameDirty = true;
+                }
+                mTextRefreshTracker.onShown(id, now);
+            }
+        }
 
-            // messages.size - 1 is how many are in this list, but we need two more, the start and end messages
-            float totalTextHeight = ((mMessages.size() - 1) + 2) * mTextPaints[BASE_PAINT].getFontSpacing();
+        @Override
+        public void onApplyWindowInsets(WindowInsets insets) {
+            super.onApplyWindowInsets(insets);
+            mRenderer.setRound(insets.isRound());
+            if (mWidth > 0) {
+                relayout();
+            }
+        }
 
-            mTextX = mCenterX - mTextPaints[BASE_PAINT].measureText(mMessages.get(0)) / 2;
-            mTextX = width * TEXT_X_RATIO;
-            mExtraTextX = mTextX + mTextPaints[BASE_PAINT].measureText(mMessages.get(1));
-            mTextY = mCenterY - (totalTextHeight / 2) + (height * TEXT_Y_ADJUST);
+        @Override
+        public void onSurfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+            super.onSurfaceChanged(holder, format, width, height);
 
             // Init complications
             setDefaultSystemComplicationProvider(BATTERY_COMP_ID, SystemProviders.WATCH_BATTERY, ComplicationData.TYPE_RANGED_VALUE);
             setDefaultSystemComplicationProvider(STEP_COMP_ID, SystemProviders.STEP_COUNT, ComplicationData.TYPE_SHORT_TEXT);
             setDefaultComplicationProvider(TEMP_COMP_ID, null, ComplicationData.TYPE_EMPTY);
-        }
 
-        @Override
-        public void onDraw(Canvas canvas, Rect bounds) {
-            long now = System.currentTimeMillis();
-            mCalendar.setTimeInMillis(now);
-
-            // Clear screen
-            canvas.drawColor(Color.BLACK);
+            // Nothing else to do if the size is the same
+            if (width == mWidth && height == mHeight) {
+                return;
+            }
+            mWidth = width;
+            mHeight = height;
 
-            // Draw text
-            float y = mTextY;
+            // Make a new static layer for the new size
+            if (mStaticLayer != null) {
+                mStaticLayer.recycle();
+            }
+            mStaticLayer = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            mStaticSink.setCanvas(new Canvas(mStaticLayer));
+            mStaticLayerDirty = true;
 
-            // Draw the first line (with the username in it)
-            canvas.drawText(mStartMessage, mTextX, y, mTextPaints[BASE_PAINT]);
-            y += mTextPaints[BASE_PAINT].getFontSpacing();
+            // The ambient frame is only ever gray, so it doesn't need full color
+            if (mAmbientFrame != null) {
+                mAmbientFrame.recycle();
+            }
+            mAmbientFrame = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+            mAmbientSink.setCanvas(new Canvas(mAmbientFrame));
+            mAmbientFrameDirty = true;
 
-            for (int i = 0; i < mMessages.size(); i++) {
-                String message = mMessages.get(i);
-                canvas.drawText(message, mTextX, y, mTextPaints[BASE_PAINT]);
-                switch (i) {
-                    case 0:
-                        canvas.drawText(makeTime(), mExtraTextX, y, mTextPaints[TIME_PAINT]);
-                        break;
-                    case 1:
-                        canvas.drawText(makeDate(), mExtraTextX, y, mTextPaints[DATE_PAINT]);
-                        break;
-                    case 2:
-                        canvas.drawText(mBatteryVisual, mExtraTextX, y, mTextPaints[BATTERY_PAINT]);
-                        break;
-                    case 3:
-                        canvas.drawText(mStepString, mExtraTextX, y, mTextPaints[STEP_PAINT]);
-                        break;
-                    case 4:
-                        canvas.drawText(mTempString, mExtraTextX, y, mTextPaints[TEMP_PAINT]);
-                        break;
-                }
-                y += mTextPaints[BASE_PAINT].getFontSpacing();
+            if (mRenderNodeSink != null) {
+                mRenderNodeSink.setSize(width, height);
             }
 
-            // Draw the last line (also has the username in it)
-            canvas.drawText(mEndMessage, mTextX, y, mTextPaints[BASE_PAINT]);
+            for (TextPaint p : mTextPaints) {
+                p.setTextSize(TerminalRenderer.getTextSize(height));
+            }
+            relayout();
         }
 
-        private String makeTime() {
-            // Reset the time string buffer (without making a new one)
-            mTimeSb.setLength(0);
+        @Override
+        public void onTypefaceLoaded(Typeface typeface) {
+            for (TextPaint p : mTextPaints) {
+                p.setTypeface(typeface);
+            }
+            if (mWidth > 0) {
+                relayout();
+            }
+            invalidateContent();
+        }
 
-            // Get current time values
-            Date d = mCalendar.getTime();
-            int m = mCalendar.get(Calendar.MINUTE);
-            int h = mCalendar.get(Calendar.HOUR);
-            TimeZone tz = TimeZone.getDefault();
+        /**
+         * Recalculates positions, and throws away anything drawn with the old ones.
+         */
+        private void relayout() {
+            mRenderer.layout(mWidth, mHeight, new PaintTextMeasurer(mTextPaints[TerminalRenderer.BASE_STYLE]));
+            mStaticLayerDirty = true;
+            mAmbientFrameDirty = true;
+            recycleGlyphAtlases();
+        }
 
-            // If the timezone has changed (or it switched in or out of DST)...
-            if (!tz.equals(mTimezone) || mTimezone.inDaylightTime(d) != tz.inDaylightTime(d)) {
-                // Update the format objects (because the locale probably changed)
-                mHourMinuteFormat = new SimpleDateFormat(HM_FORMAT_STRING, Locale.getDefault());
-                mTimezoneFormat = new SimpleDateFormat(TZ_FORMAT_STRING, Locale.getDefault());
-                mDateFormat = new SimpleDateFormat(D_FORMAT_STRING, Locale.getDefault());
-                mAmPmFormat = new SimpleDateFormat(AMPM_FORMAT_STRING, Locale.getDefault());
+        @Override
+        public void onDraw(Canvas canvas, Rect bounds) {
+            long drawStart = System.nanoTime();
+            long drawCpuStart = Debug.threadCpuTimeNanos();
 
-                // Regenerate the calendar, and cache the timezone
-                mCalendar = Calendar.getInstance();
-                mTimezone = mCalendar.getTimeZone();
-                d = mCalendar.getTime();
-                m = mCalendar.get(Calendar.MINUTE);
-                h = mCalendar.get(Calendar.HOUR);
-                mTimezoneString = mTimezoneFormat.format(d);
+            if (mAmbient) {
+                drawAmbient(canvas);
+            } else {
+                drawInteractive(canvas);
             }
 
-            // If the minute or hour has changed...
-            // (hour check only necessary if the timezone changed)
-            if (m != mMinute || h != mHour) {
-                // Cache it, and regenerate the hours, minutes, and AM/PM
-                mMinute = m;
-                mHour = h;
-                mHourMinuteString = mHourMinuteFormat.format(d);
-                mAmPmString = mAmPmFormat.format(d);
+            // Any pending complication updates were just drawn, so the deferred frame isn't needed
+            mUpdateCoalescer.onFrameDrawn();
+            mUpdateTimeHandler.removeMessages(MSG_COMPLICATION_FRAME);
+
+            long drawNanos = System.nanoTime() - drawStart;
+            mPerfStats.recordDraw(drawNanos);
+            // The power counters want CPU time instead, since that's what costs battery. It's -1 if
+            // the device can't tell, and then the frame is still counted but its time isn't
+            long drawCpuNanos = drawCpuStart >= 0 ? Debug.threadCpuTimeNanos() - drawCpuStart : 0;
+            mPowerCounters.recordDraw(System.currentTimeMillis(), mAmbient, drawCpuNanos);
+            if (!mAmbient && drawCpuStart >= 0 && mRenderNodeSink != null && canvas.isHardwareAccelerated()) {
+                mPerfStats.recordInteractiveCpu(mDrewRenderNodes, drawCpuNanos);
+            }
+            if (mUpdateTimeHandler.hasMessages(MSG_ANIMATION_FRAME)) {
+                mAnimator.onFrameDrawn(drawNanos);
             }
 
+            if (!mFirstFrameDrawn) {
+                mFirstFrameDrawn = true;
+                long timeToFirstFrame = SystemClock.elapsedRealtime() - mCreateTime;
+                mPerfStats.setTimeToFirstFrame(timeToFirstFrame);
+                Log.d(TAG, "First frame drawn " + timeToFirstFrame + "ms after engine creation");
+            }
+        }
 
-            // Hour and minutes are first in the string
-            mTimeSb.append(mHourMinuteString);
-
-            // If we're in interactive mode...
-            if (!mAmbient) {
-                // Get the seconds, and make it a string
-                String sec = Integer.toString(mCalendar.get(Calendar.SECOND));
-                // but pad it with a 0 if it's one digit
-                if (sec.length() < 2) {
-                    mTimeSb.append("0");
+        private void drawInteractive(Canvas canvas) {
+            mDrewRenderNodes = mRenderNodeSink != null && canvas.isHardwareAccelerated()
+                    && mPerfStats.shouldUseRenderNodes();
+
+            // Redraw the static layer if anything on it changed. Anything that does also changes
+            // how the rows look, and the next frame might be drawn the other way, so both are
+            // brought up to date together
+            if (mStaticLayerDirty) {
+                mStaticLayerDirty = false;
+                mRenderer.drawStatic(mStaticSink);
+                if (mRenderNodeSink != null) {
+                    mRenderNodeSink.invalidate();
                 }
-                // Then stick it on the final string
-                mTimeSb.append(sec);
-            } else {
-                // If we're in ambient mode, skip all that and just append dashes
-                mTimeSb.append("--");
             }
 
-            // Next is the AM/PM string
-            mTimeSb.append(mAmPmString);
+            if (mDrewRenderNodes) {
+                mRenderNodeSink.draw(canvas, mRenderer);
+                return;
+            }
 
-            // And finally the timezone
-            mTimeSb.append(mTimezoneString);
+            // This also clears the screen, since the layer is opaque
+            canvas.drawBitmap(mStaticLayer, 0, 0, null);
 
-            return mTimeSb.toString();
+            mFrameSink.setCanvas(canvas);
+            mRenderer.drawValues(mFrameSink, false);
         }
 
-        private String makeDate() {
-            int day = mCalendar.get(Calendar.DAY_OF_MONTH);
-            if (day != mDay) {
-                mDay = day;
-                mDateString = mDateFormat.format(mCalendar.getTime());
+        private void drawAmbient(Canvas canvas) {
+            // Redrawn when something on it changed, including any complication values
+            if (mAmbientFrameDirty || mUpdateCoalescer.isDirty()) {
+                mAmbientFrameDirty = false;
+                mRenderer.drawStatic(mAmbientSink);
+                mRenderer.drawValues(mAmbientSink, true);
+
+                // Pick where to put it this minute
+                if (mBurnInProtection) {
+                    int shift = (int) ((System.currentTimeMillis() / TimeUnit.MINUTES.toMillis(1)) % BURN_IN_SHIFTS_X.length);
+                    mAmbientShiftX = BURN_IN_SHIFTS_X[shift] * BURN_IN_SHIFT_PX;
+                    mAmbientShiftY = BURN_IN_SHIFTS_Y[shift] * BURN_IN_SHIFT_PX;
+                } else {
+                    mAmbientShiftX = 0;
+                    mAmbientShiftY = 0;
+                }
             }
 
-            return mDateString;
+            // Clear first, since the shifted frame doesn't cover the whole screen
+            canvas.drawColor(TerminalRenderer.BACKGROUND_COLOR);
+            canvas.drawBitmap(mAmbientFrame, mAmbientShiftX, mAmbientShiftY, null);
+        }
+
+        private void recycleGlyphAtlases() {
+            for (int i = 0; i < TerminalRenderer.NUM_STYLES; i++) {
+                if (mGlyphAtlases[i] != null) {
+                    mGlyphAtlases[i].recycle();
+                    mGlyphAtlases[i] = null;
+                }
+            }
         }
 
         @Override
@@ -426,14 +648,15 @@ public class TerminalWatchFace extends CanvasWatchFaceService {
             if (visible) {
                 registerReceiver();
                 /* Update time zone in case it changed while we weren't visible. */
-                mCalendar.setTimeZone(TimeZone.getDefault());
-                invalidate();
+                mRenderer.onTimezoneChanged();
+                invalidateContent();
             } else {
                 unregisterReceiver();
             }
 
             /* Check and trigger whether or not timer should be running (only in active mode). */
             updateTimer();
+            updateAnimation();
         }
 
         private void registerReceiver() {
@@ -442,6 +665,9 @@ public class TerminalWatchFace extends CanvasWatchFaceService {
             }
             mRegisteredTimeZoneReceiver = true;
             IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
+            // These can also change what the time looks like, so handle them the same way
+            filter.addAction(Intent.ACTION_TIME_CHANGED);
+            filter.addAction(Intent.ACTION_LOCALE_CHANGED);
             TerminalWatchFace.this.registerReceiver(mTimeZoneReceiver, filter);
         }
 
@@ -455,8 +681,15 @@ public class TerminalWatchFace extends CanvasWatchFaceService {
 
         private void updateTimer() {
             mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            // Complication updates might have been waiting on the tick that was just cancelled
+            mUpdateCoalescer.onFrameCancelled();
+            // This tick isn't scheduled for any particular time, so don't count its lateness
+            mExpectedTickTime = 0;
             if (shouldTimerBeRunning()) {
+                mTickScheduler.start(System.currentTimeMillis());
                 mUpdateTimeHandler.sendEmptyMessage(MSG_UPDATE_TIME);
+            } else {
+                mTickScheduler.stop(System.currentTimeMillis());
             }
         }
 
@@ -465,13 +698,67 @@ public class TerminalWatchFace extends CanvasWatchFaceService {
         }
 
         private void handleUpdateTimeMessage() {
+            long timeMs = System.currentTimeMillis();
+            if (mExpectedTickTime != 0) {
+                mPerfStats.recordTickLateness(timeMs - mExpectedTickTime);
+            }
+
+            mTickScheduler.recordWakeup(timeMs);
+            mPowerCounters.recordWakeup(timeMs);
+            mPerfStats.setAvoidedWakeups(mTickScheduler.getAvoidedWakeupsLastHour());
+
+            refreshTexts(timeMs);
             invalidate();
             if (shouldTimerBeRunning()) {
-                long timeMs = System.currentTimeMillis();
-                long delayMs = INTERACTIVE_UPDATE_RATE_MS
-                        - (timeMs % INTERACTIVE_UPDATE_RATE_MS);
-                mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, delayMs);
+                // Sleep until the next time something on the face actually changes
+                mExpectedTickTime = mTickScheduler.getNextWakeup(timeMs);
+                mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, mExpectedTickTime - timeMs);
             }
         }
+
+        private void handleComplicationFrameMessage() {
+            // A frame might have drawn the changes already
+            if (!mUpdateCoalescer.isDirty()) {
+                return;
+            }
+            mPerfStats.recordComplicationRedraw();
+            invalidate();
+        }
+
+        /**
+         * Plays the animation whenever the face comes into view in interactive mode, and stops it
+         * otherwise.
+         */
+        private void updateAnimation() {
+            mUpdateTimeHandler.removeMessages(MSG_ANIMATION_FRAME);
+            if (shouldTimerBeRunning()) {
+                mAnimator.start(System.currentTimeMillis());
+                mUpdateTimeHandler.sendEmptyMessage(MSG_ANIMATION_FRAME);
+            } else {
+                mAnimator.stop();
+                mRenderer.setReveal(1);
+                mRenderer.setCursorVisible(true);
+            }
+        }
+
+        private void handleAnimationFrameMessage() {
+            long timeMs = System.currentTimeMillis();
+            mRenderer.setReveal(mAnimator.getReveal(timeMs));
+            mRenderer.setCursorVisible(mAnimator.isCursorOn(timeMs));
+            invalidate();
+
+            // Once it's done, the normal ticks take over again
+            if (mAnimator.isRunning(timeMs) && shouldTimerBeRunning()) {
+                mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_ANIMATION_FRAME, mAnimator.getFrameDelay(timeMs));
+            }
+        }
+
+        /**
+         * Redraws after something on the face changed, as opposed to just the seconds ticking over.
+         */
+        private void invalidateContent() {
+            mAmbientFrameDirty = true;
+            invalidate();
+        }
     }
 }
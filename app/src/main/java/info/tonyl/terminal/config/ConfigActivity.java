@@ -11,9 +11,9 @@ import androidx.wear.widget.WearableLinearLayoutManager;
 import androidx.wear.widget.WearableRecyclerView;
 
 import info.tonyl.terminal.R;
-import info.tonyl.terminal.TerminalWatchFace;
 import info.tonyl.terminal.constants.RemoteInputConstants;
 import info.tonyl.terminal.constants.Settings;
+import info.tonyl.terminal.settings.SettingsStore;
 
 public class ConfigActivity extends Activity {
     private static final String TAG = ConfigActivity.class.getSimpleName();
@@ -43,6 +43,14 @@ public class ConfigActivity extends Activity {
         mWearableRecyclerView.setHasFixedSize(true);
 
         mWearableRecyclerView.setAdapter(mAdapter);
+        SettingsStore.get(this).addListener(mAdapter);
+    }
+
+    @Override
+    protected void onDestroy() {
+        SettingsStore.get(this).removeListener(mAdapter);
+        mAdapter.release();
+        super.onDestroy();
     }
 
     @Override
@@ -59,23 +67,21 @@ public class ConfigActivity extends Activity {
                 newValue = getString(R.string.unset_config_value);
             }
 
-            // Set back the current value in the config item
-            TerminalWatchFace.getPrefs().edit()
-                    .putString(Settings.SETTING_WEATHER, newValue)
-                    .apply();
-
-            mAdapter.setValueFor(ConfigRecyclerViewAdapter.WEATHER_SETTING, newValue);
+            // The adapter gets told about the change by the store, and updates the config item
+            SettingsStore.get(this).putString(Settings.SETTING_WEATHER, newValue);
         } else if (requestCode == USERNAME_CONFIG_CODE && resultCode == RESULT_OK) {
             Bundle results = RemoteInput.getResultsFromIntent(data);
             String username = results.getCharSequence(RemoteInputConstants.USERNAME_INPUT_KEY).toString();
 
-            // Set the username into the config
-            TerminalWatchFace.getPrefs().edit()
-                    .putString(Settings.SETTING_USERNAME, username)
-                    .apply();
-
-            mAdapter.setValueFor(ConfigRecyclerViewAdapter.USERNAME_SETTING, username);
-            TerminalWatchFace.updateUsernameMessages(getApplicationContext());
+            // Set the username into the config (the watch face and adapter pick it up from the store)
+            SettingsStore.get(this).putString(Settings.SETTING_USERNAME, username);
         }
     }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // Don't leave changes waiting around if the user is leaving
+        SettingsStore.get(this).flush();
+    }
 }
\ No newline at end of file
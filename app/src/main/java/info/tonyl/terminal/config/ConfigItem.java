@@ -3,6 +3,7 @@ package info.tonyl.terminal.config;
 public class ConfigItem {
 
     public static final int TEXT_ONLY_TYPE = 0;
+    public static final int PREVIEW_TYPE = 1;
 
     private String mDescription;
     private int mType;
@@ -5,6 +5,7 @@ import android.app.RemoteInput;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
+import android.graphics.Bitmap;
 import android.graphics.Color;
 import android.support.wearable.complications.ComplicationData;
 import android.support.wearable.complications.ComplicationHelperActivity;
@@ -26,33 +27,97 @@ import info.tonyl.terminal.R;
 import info.tonyl.terminal.TerminalWatchFace;
 import info.tonyl.terminal.constants.RemoteInputConstants;
 import info.tonyl.terminal.constants.Settings;
+import info.tonyl.terminal.constants.TemperatureConstants;
+import info.tonyl.terminal.perf.Histogram;
+import info.tonyl.terminal.perf.PerfStats;
+import info.tonyl.terminal.perf.PowerCounters;
+import info.tonyl.terminal.render.PreviewRenderer;
+import info.tonyl.terminal.settings.SettingsSnapshot;
+import info.tonyl.terminal.settings.SettingsStore;
 
-public class ConfigRecyclerViewAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+public class ConfigRecyclerViewAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
+        implements SettingsStore.Listener, PreviewRenderer.Listener {
 
     private Context mContext;
     private Activity mConfigActivity;
     private List<ConfigItem> mConfigItems;
+    private SettingsStore mSettingsStore;
+    private PreviewRenderer mPreviewRenderer;
+    private Bitmap mPreview;
 
     public static final int WEATHER_SETTING = 0;
     public static final int USERNAME_SETTING = 1;
     public static final int ABOUT_VERSION = 2;
+    public static final int PERF_STATS = 3;
+    public static final int HOUR_FORMAT_SETTING = 4;
+    public static final int TEMP_UNIT_SETTING = 5;
+    public static final int SHOW_SECONDS_SETTING = 6;
+    public static final int POWER_STATS = 7;
+    public static final int PREVIEW = 8;
+
+    // The order tapping the temperature unit setting goes through them
+    private static final String[] TEMP_UNITS = {
+            TemperatureConstants.UNIT_AS_PROVIDED,
+            TemperatureConstants.UNIT_FAHRENHEIT,
+            TemperatureConstants.UNIT_CELSIUS};
 
     public ConfigRecyclerViewAdapter(Context context, Activity configActivity) {
         mContext = context;
         mConfigActivity = configActivity;
+        mSettingsStore = SettingsStore.get(context);
+        SettingsSnapshot settings = mSettingsStore.getSnapshot();
+        mPreviewRenderer = new PreviewRenderer(context,
+                context.getResources().getDimensionPixelSize(R.dimen.preview_size), this);
+        mPreview = mPreviewRenderer.request(settings);
         mConfigItems = new ArrayList<>();
+        mConfigItems.add(new ConfigItem(
+                mContext.getString(R.string.preview_description),
+                0,
+                "",
+                ConfigItem.PREVIEW_TYPE,
+                PREVIEW));
         mConfigItems.add(new ConfigItem(
                 mContext.getString(R.string.weather_comp_setting),
                 R.drawable.ic_landscape_white,
-                getPrefString(Settings.SETTING_WEATHER, R.string.unset_config_value),
+                settings.getWeather(),
                 ConfigItem.TEXT_ONLY_TYPE,
                 WEATHER_SETTING));
         mConfigItems.add(new ConfigItem(
                 mContext.getString(R.string.username_setting),
                 R.drawable.icn_styles,
-                getPrefString(Settings.SETTING_USERNAME, R.string.default_username),
+                settings.getUsername(),
                 ConfigItem.TEXT_ONLY_TYPE,
                 USERNAME_SETTING));
+        mConfigItems.add(new ConfigItem(
+                mContext.getString(R.string.hour_format_setting),
+                R.drawable.icn_styles,
+                getHourFormatString(settings),
+                ConfigItem.TEXT_ONLY_TYPE,
+                HOUR_FORMAT_SETTING));
+        mConfigItems.add(new ConfigItem(
+                mContext.getString(R.string.show_seconds_setting),
+                R.drawable.icn_styles,
+                getShowSecondsString(settings),
+                ConfigItem.TEXT_ONLY_TYPE,
+                SHOW_SECONDS_SETTING));
+        mConfigItems.add(new ConfigItem(
+                mContext.getString(R.string.temp_unit_setting),
+                R.drawable.ic_landscape_white,
+                getTempUnitString(settings),
+                ConfigItem.TEXT_ONLY_TYPE,
+                TEMP_UNIT_SETTING));
+        mConfigItems.add(new ConfigItem(
+                mContext.getString(R.string.perf_setting),
+                R.drawable.icn_styles,
+                getPerfString(),
+                ConfigItem.TEXT_ONLY_TYPE,
+                PERF_STATS));
+        mConfigItems.add(new ConfigItem(
+                mContext.getString(R.string.power_setting),
+                R.drawable.icn_styles,
+                getPowerString(),
+                ConfigItem.TEXT_ONLY_TYPE,
+                POWER_STATS));
         mConfigItems.add(new ConfigItem(
                 mContext.getString(R.string.version_setting),
                 R.drawable.icn_styles,
@@ -61,8 +126,94 @@ public class ConfigRecyclerViewAdapter extends RecyclerView.Adapter<RecyclerView
                 ABOUT_VERSION));
     }
 
-    private String getPrefString(String key, int def) {
-        return TerminalWatchFace.getPrefs().getString(key, mContext.getString(def));
+    /**
+     * Refreshes the values shown, since the settings might have still been loading when this was
+     * made.
+     */
+    @Override
+    public void onSettingsChanged(SettingsSnapshot settings) {
+        setValueFor(WEATHER_SETTING, settings.getWeather());
+        setValueFor(USERNAME_SETTING, settings.getUsername());
+        setValueFor(HOUR_FORMAT_SETTING, getHourFormatString(settings));
+        setValueFor(SHOW_SECONDS_SETTING, getShowSecondsString(settings));
+        setValueFor(TEMP_UNIT_SETTING, getTempUnitString(settings));
+
+        // Keeps showing the old preview until the new one is drawn
+        Bitmap preview = mPreviewRenderer.request(settings);
+        if (preview != null) {
+            onPreviewRendered(preview);
+        }
+    }
+
+    @Override
+    public void onPreviewRendered(Bitmap preview) {
+        if (preview == mPreview) {
+            return;
+        }
+        mPreview = preview;
+        for (int i = 0; i < mConfigItems.size(); i++) {
+            if (mConfigItems.get(i).getWhich() == PREVIEW) {
+                notifyItemChanged(i);
+            }
+        }
+    }
+
+    /**
+     * Stops drawing previews, for when the config screen is going away.
+     */
+    public void release() {
+        mPreviewRenderer.release();
+    }
+
+    private String getHourFormatString(SettingsSnapshot settings) {
+        return mContext.getString(settings.use24Hour() ? R.string.hour_format_24 : R.string.hour_format_12);
+    }
+
+    private String getShowSecondsString(SettingsSnapshot settings) {
+        return mContext.getString(settings.showSeconds() ? R.string.setting_shown : R.string.setting_hidden);
+    }
+
+    private String getTempUnitString(SettingsSnapshot settings) {
+        switch (settings.getTempUnit()) {
+            case TemperatureConstants.UNIT_FAHRENHEIT:
+                return mContext.getString(R.string.temp_unit_f);
+            case TemperatureConstants.UNIT_CELSIUS:
+                return mContext.getString(R.string.temp_unit_c);
+            default:
+                return mContext.getString(R.string.temp_unit_provided);
+        }
+    }
+
+    private String getPerfString() {
+        PerfStats stats = TerminalWatchFace.getPerfStats();
+        if (stats.getDrawTimes().getCount() == 0) {
+            return mContext.getString(R.string.perf_no_data);
+        }
+        Histogram draw = stats.getDrawTimes();
+        Histogram late = stats.getTickLateness();
+        Histogram renderNodeCpu = stats.getRenderNodeCpuTimes();
+        Histogram softwareCpu = stats.getSoftwareCpuTimes();
+        return mContext.getString(R.string.perf_summary,
+                draw.getPercentile(50) / 1000f, draw.getPercentile(95) / 1000f,
+                draw.getPercentile(99) / 1000f, draw.getMax() / 1000f,
+                late.getPercentile(50), late.getPercentile(95),
+                late.getPercentile(99), late.getMax(),
+                stats.getComplicationUpdates(), stats.getSavedRedraws(),
+                stats.getAvoidedWakeups(), stats.getTimeToFirstFrame(),
+                stats.getTextCacheHits(), stats.getTextCacheMisses(),
+                renderNodeCpu.getPercentile(50) / 1000f, renderNodeCpu.getCount(),
+                softwareCpu.getPercentile(50) / 1000f, softwareCpu.getCount());
+    }
+
+    private String getPowerString() {
+        PowerCounters counters = TerminalWatchFace.getPowerCounters();
+        long now = System.currentTimeMillis();
+        long drawCpuNanos = counters.getTotalInteractiveDrawCpuNanos(now) + counters.getTotalAmbientDrawCpuNanos(now);
+        if (counters.getTotalWakeups(now) == 0 && drawCpuNanos == 0) {
+            return mContext.getString(R.string.power_no_data);
+        }
+        return mContext.getString(R.string.power_summary,
+                counters.getTotalWakeups(now), PowerStatsActivity.toSeconds(drawCpuNanos));
     }
 
     @NonNull
@@ -75,6 +226,12 @@ public class ConfigRecyclerViewAdapter extends RecyclerView.Adapter<RecyclerView
                 holder = new ConfigItemViewHolder(
                         LayoutInflater.from(mContext).inflate(
                                 R.layout.config_item, parent, false));
+                break;
+            case ConfigItem.PREVIEW_TYPE:
+                holder = new PreviewViewHolder(
+                        LayoutInflater.from(mContext).inflate(
+                                R.layout.config_preview_item, parent, false));
+                break;
         }
 
         return holder;
@@ -82,6 +239,10 @@ public class ConfigRecyclerViewAdapter extends RecyclerView.Adapter<RecyclerView
 
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        if (holder instanceof PreviewViewHolder) {
+            ((PreviewViewHolder) holder).fill(mPreview);
+            return;
+        }
         ConfigItemViewHolder configHolder = (ConfigItemViewHolder) holder;
         configHolder.fill(mConfigItems.get(position));
     }
@@ -99,13 +260,27 @@ public class ConfigRecyclerViewAdapter extends RecyclerView.Adapter<RecyclerView
     public void setValueFor(int settingId, String value) {
         for (int i = 0; i < mConfigItems.size(); i++) {
             ConfigItem ci = mConfigItems.get(i);
-            if (ci.getWhich() == settingId) {
+            if (ci.getWhich() == settingId && !value.equals(ci.getValue())) {
                 ci.setValue(value);
                 notifyItemChanged(i);
             }
         }
     }
 
+    public class PreviewViewHolder extends RecyclerView.ViewHolder {
+        ImageView mPreviewView;
+
+        public PreviewViewHolder(@NonNull View itemView) {
+            super(itemView);
+            mPreviewView = itemView.findViewById(R.id.preview);
+        }
+
+        public void fill(Bitmap preview) {
+            // Just a bitmap that's already drawn, so binding stays cheap while scrolling
+            mPreviewView.setImageBitmap(preview);
+        }
+    }
+
     public class ConfigItemViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
         TextView mDescriptionView;
         TextView mValueView;
@@ -153,6 +328,33 @@ public class ConfigRecyclerViewAdapter extends RecyclerView.Adapter<RecyclerView
                     intent.putExtra(RemoteInputIntent.EXTRA_REMOTE_INPUTS, new RemoteInput[]{input});
                     mConfigActivity.startActivityForResult(intent, ConfigActivity.USERNAME_CONFIG_CODE);
                     break;
+                // The store tells onSettingsChanged about these, which updates the values shown
+                case HOUR_FORMAT_SETTING:
+                    boolean use24Hour = mSettingsStore.getSnapshot().use24Hour();
+                    mSettingsStore.putBoolean(Settings.SETTING_24_HOUR, !use24Hour);
+                    break;
+                case SHOW_SECONDS_SETTING:
+                    boolean showSeconds = mSettingsStore.getSnapshot().showSeconds();
+                    mSettingsStore.putBoolean(Settings.SETTING_SHOW_SECONDS, !showSeconds);
+                    break;
+                case TEMP_UNIT_SETTING:
+                    String unit = mSettingsStore.getSnapshot().getTempUnit();
+                    String nextUnit = TEMP_UNITS[0];
+                    for (int i = 0; i < TEMP_UNITS.length; i++) {
+                        if (TEMP_UNITS[i].equals(unit)) {
+                            nextUnit = TEMP_UNITS[(i + 1) % TEMP_UNITS.length];
+                        }
+                    }
+                    mSettingsStore.putString(Settings.SETTING_TEMP_UNIT, nextUnit);
+                    break;
+                case PERF_STATS:
+                    // Tapping refreshes the numbers
+                    setValueFor(PERF_STATS, getPerfString());
+                    break;
+                case POWER_STATS:
+                    setValueFor(POWER_STATS, getPowerString());
+                    mConfigActivity.startActivity(new Intent(mConfigActivity, PowerStatsActivity.class));
+                    break;
             }
         }
     }
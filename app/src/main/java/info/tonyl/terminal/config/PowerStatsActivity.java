@@ -0,0 +1,72 @@
+package info.tonyl.terminal.config;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.widget.TextView;
+
+import java.util.concurrent.TimeUnit;
+
+import info.tonyl.terminal.R;
+import info.tonyl.terminal.TerminalWatchFace;
+import info.tonyl.terminal.perf.PowerCounters;
+
+/**
+ * Shows what the face has been doing each hour for the last day, to see which mode or provider
+ * costs the most.
+ */
+public class PowerStatsActivity extends Activity {
+    private TextView mStatsView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        setContentView(R.layout.power_stats_layout);
+        mStatsView = findViewById(R.id.power_stats_text);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        mStatsView.setText(getStatsString());
+    }
+
+    private String getStatsString() {
+        PowerCounters counters = TerminalWatchFace.getPowerCounters();
+        long now = System.currentTimeMillis();
+
+        // Each hour from the newest back, after the totals
+        StringBuilder hours = new StringBuilder();
+        for (int hoursAgo = 0; hoursAgo < PowerCounters.HOURS; hoursAgo++) {
+            int index = counters.getHourIndex(now, hoursAgo);
+            if (index < 0) {
+                continue;
+            }
+            hours.append(getString(R.string.power_hour, counters.getHourStart(index))).append('\n');
+            hours.append(getString(R.string.power_counts,
+                    counters.getWakeups(index),
+                    counters.getInteractiveDraws(index), toSeconds(counters.getInteractiveDrawCpuNanos(index)),
+                    counters.getAmbientDraws(index), toSeconds(counters.getAmbientDrawCpuNanos(index)),
+                    counters.getPushes(index, TerminalWatchFace.BATTERY_COMP_ID),
+                    counters.getPushes(index, TerminalWatchFace.STEP_COMP_ID),
+                    counters.getPushes(index, TerminalWatchFace.TEMP_COMP_ID)));
+        }
+
+        if (hours.length() == 0) {
+            return getString(R.string.power_no_data);
+        }
+        return getString(R.string.power_title) + '\n'
+                + getString(R.string.power_counts,
+                        counters.getTotalWakeups(now),
+                        counters.getTotalInteractiveDraws(now), toSeconds(counters.getTotalInteractiveDrawCpuNanos(now)),
+                        counters.getTotalAmbientDraws(now), toSeconds(counters.getTotalAmbientDrawCpuNanos(now)),
+                        counters.getTotalPushes(now, TerminalWatchFace.BATTERY_COMP_ID),
+                        counters.getTotalPushes(now, TerminalWatchFace.STEP_COMP_ID),
+                        counters.getTotalPushes(now, TerminalWatchFace.TEMP_COMP_ID))
+                + '\n' + hours;
+    }
+
+    static float toSeconds(long nanos) {
+        return nanos / (float) TimeUnit.SECONDS.toNanos(1);
+    }
+}
@@ -1,11 +0,0 @@
-package info.tonyl.terminal.constants;
-
-public class TemperatureConstants {
-    private TemperatureConstants() {
-        // Hiding constructor
-    }
-
-    public static final String TEMPERATURE_PATTERN_F = " ℉";
-    public static final String TEMPERATURE_PATTERN_C = " ℃";
-    public static final String TEMPERATURE_REPLACEMENT = "°";
-}
@@ -0,0 +1,172 @@
+package info.tonyl.terminal.history;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the complication history for the whole process, and saves it to a file so it's still there
+ * after the face is restarted. The file is only touched on a background thread.
+ * <p>
+ * Everything here is meant to be called from the main thread.
+ */
+public class HistoryStore {
+    private static final String TAG = HistoryStore.class.getSimpleName();
+    private static final String FILE_NAME = "complication_history";
+
+    // Samples come in bunches, so wait a bit to save them all at once
+    private static final long SAVE_DELAY_MS = TimeUnit.SECONDS.toMillis(30);
+
+    private static HistoryStore mInstance;
+
+    private final File mFile;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private final ComplicationHistory mHistory = new ComplicationHistory();
+    private boolean mLoaded;
+    private boolean mSaveScheduled;
+
+    private final Runnable mSaveRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mSaveScheduled = false;
+            save();
+        }
+    };
+
+    /**
+     * Gets the store, starting to load the saved history if this is the first time.
+     */
+    public static HistoryStore get(Context context) {
+        if (mInstance == null) {
+            mInstance = new HistoryStore(context.getApplicationContext());
+        }
+        return mInstance;
+    }
+
+    private HistoryStore(Context context) {
+        mFile = new File(context.getFilesDir(), FILE_NAME);
+        load();
+    }
+
+    private void load() {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final byte[] saved = readFile();
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onLoaded(saved);
+                    }
+                });
+            }
+        });
+    }
+
+    private byte[] readFile() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)))) {
+            byte[] bytes = new byte[(int) mFile.length()];
+            in.readFully(bytes);
+            return bytes;
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            Log.w(TAG, "Couldn't read the complication history", e);
+            return null;
+        }
+    }
+
+    private void onLoaded(byte[] saved) {
+        mLoaded = true;
+        if (saved != null) {
+            try {
+                mHistory.readFrom(new DataInputStream(new ByteArrayInputStream(saved)));
+            } catch (IOException e) {
+                Log.w(TAG, "Couldn't read the complication history", e);
+            }
+        }
+    }
+
+    /**
+     * Gets the history. Anything added before the saved history has loaded is kept, and the saved
+     * samples go in before it.
+     */
+    public ComplicationHistory getHistory() {
+        return mHistory;
+    }
+
+    /**
+     * Call after adding samples to the history, so they get saved.
+     */
+    public void onChanged() {
+        if (mSaveScheduled) {
+            return;
+        }
+        mSaveScheduled = true;
+        mMainHandler.postDelayed(mSaveRunnable, SAVE_DELAY_MS);
+    }
+
+    /**
+     * Saves right away instead of waiting, if there's anything to save.
+     */
+    public void flush() {
+        if (mSaveScheduled) {
+            mMainHandler.removeCallbacks(mSaveRunnable);
+            mSaveScheduled = false;
+            save();
+        }
+    }
+
+    private void save() {
+        // Saving before the old history is loaded would throw it away
+        if (!mLoaded) {
+            onChanged();
+            return;
+        }
+
+        // Serialized here, so the background thread doesn't touch the history itself
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            mHistory.writeTo(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            // Can't happen when writing to memory
+            throw new IllegalStateException(e);
+        }
+        final byte[] data = bytes.toByteArray();
+
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Write to the side and then swap it in, so a crash can't leave half a file
+                File temp = new File(mFile.getPath() + ".tmp");
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+                    out.write(data);
+                } catch (IOException e) {
+                    Log.w(TAG, "Couldn't save the complication history", e);
+                    return;
+                }
+                if (!temp.renameTo(mFile)) {
+                    Log.w(TAG, "Couldn't save the complication history");
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,54 @@
+package info.tonyl.terminal.render;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import info.tonyl.terminal.core.TextSink;
+
+/**
+ * Draws whatever the renderer sends it onto a canvas, with one paint per style. The paints (and
+ * atlases) are shared with whoever made this, so changes to them show up on the next draw.
+ */
+public class CanvasTextSink implements TextSink {
+    private final Paint[] mPaints;
+    private final GlyphAtlas[] mGlyphAtlases;
+    private final boolean mUseGlyphAtlas;
+    private Canvas mCanvas;
+
+    /**
+     * If useGlyphAtlas is set, text is drawn by copying glyphs out of the atlases (made as they're
+     * needed) instead of with drawText.
+     */
+    public CanvasTextSink(Paint[] paints, GlyphAtlas[] glyphAtlases, boolean useGlyphAtlas) {
+        mPaints = paints;
+        mGlyphAtlases = glyphAtlases;
+        mUseGlyphAtlas = useGlyphAtlas;
+    }
+
+    public void setCanvas(Canvas canvas) {
+        mCanvas = canvas;
+    }
+
+    @Override
+    public void drawBackground(int color) {
+        mCanvas.drawColor(color);
+    }
+
+    @Override
+    public void drawText(char[] text, int start, int count, float x, float y, int style) {
+        if (mUseGlyphAtlas) {
+            GlyphAtlas atlas = mGlyphAtlases[style];
+            // Make (or remake) the atlas if the paint has changed since it was made
+            if (atlas == null || !atlas.matches(mPaints[style])) {
+                if (atlas != null) {
+                    atlas.recycle();
+                }
+                atlas = new GlyphAtlas(mPaints[style]);
+                mGlyphAtlases[style] = atlas;
+            }
+            atlas.drawText(mCanvas, text, start, count, x, y);
+        } else {
+            mCanvas.drawText(text, start, count, x, y, mPaints[style]);
+        }
+    }
+}
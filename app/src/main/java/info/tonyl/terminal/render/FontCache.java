@@ -0,0 +1,96 @@
+package info.tonyl.terminal.render;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.core.content.res.ResourcesCompat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import info.tonyl.terminal.R;
+
+/**
+ * Loads the terminal font once per process, on a background thread, and shares it with everything
+ * that draws with it. Everything here is meant to be called from the main thread.
+ */
+public class FontCache {
+    private static final String TAG = FontCache.class.getSimpleName();
+
+    private FontCache() {
+        // Hiding constructor
+    }
+
+    public interface Listener {
+        /**
+         * Called on the main thread once the font has loaded.
+         */
+        void onTypefaceLoaded(Typeface typeface);
+    }
+
+    private static Typeface mTypeface;
+    private static boolean mLoading;
+    private static final List<Listener> mListeners = new ArrayList<>();
+
+    /**
+     * Starts loading the font, if it isn't loaded (or loading) already.
+     */
+    public static void preload(Context context) {
+        if (mTypeface != null || mLoading) {
+            return;
+        }
+        mLoading = true;
+
+        final Context appContext = context.getApplicationContext();
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final Typeface typeface = loadTypeface(appContext);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mLoading = false;
+                        if (typeface == null) {
+                            return;
+                        }
+                        mTypeface = typeface;
+                        // Copied, since listeners might add or remove themselves while being called
+                        List<Listener> listeners = new ArrayList<>(mListeners);
+                        mListeners.clear();
+                        for (Listener listener : listeners) {
+                            listener.onTypefaceLoaded(typeface);
+                        }
+                    }
+                });
+            }
+        }, TAG).start();
+    }
+
+    private static Typeface loadTypeface(Context context) {
+        try {
+            return ResourcesCompat.getFont(context, R.font.consolab);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Couldn't load the terminal font", e);
+            return null;
+        }
+    }
+
+    /**
+     * Gets the font, or null if it hasn't loaded yet.
+     */
+    public static Typeface getTypeface() {
+        return mTypeface;
+    }
+
+    public static void addListener(Listener listener) {
+        mListeners.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+}
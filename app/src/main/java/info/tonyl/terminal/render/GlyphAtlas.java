@@ -0,0 +1,101 @@
+package info.tonyl.terminal.render;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * Pre-rasterized printable ASCII for one paint (so one text size and color). Since the font is
+ * monospaced, text can be laid out on a fixed column grid and drawn by copying each glyph out of
+ * the atlas, instead of going through text shaping on every frame.
+ * <p>
+ * Anything outside the atlas (like the degree sign, or localized day names) falls back to
+ * drawText for that character.
+ */
+public class GlyphAtlas {
+    private static final char FIRST_GLYPH = ' ';
+    private static final char LAST_GLYPH = '~';
+    private static final int GLYPH_COUNT = LAST_GLYPH - FIRST_GLYPH + 1;
+    private static final int ATLAS_COLUMNS = 16;
+
+    // Extra room on each side of a cell, since bold glyphs can hang over their advance a bit
+    private static final int CELL_PADDING = 2;
+
+    private final Paint mPaint;
+    private final Bitmap mAtlas;
+    private final float mAdvance;
+    private final int mCellWidth;
+    private final int mCellHeight;
+    private final int mBaseline;
+
+    private final Rect mSrc = new Rect();
+    private final RectF mDst = new RectF();
+
+    public GlyphAtlas(Paint paint) {
+        // Keep our own copy, so changes to the original paint can be detected with matches()
+        mPaint = new Paint(paint);
+        mPaint.setTextAlign(Paint.Align.LEFT);
+
+        Paint.FontMetrics fm = mPaint.getFontMetrics();
+        mAdvance = mPaint.measureText("M");
+        mBaseline = (int) Math.ceil(-fm.top);
+        mCellWidth = (int) Math.ceil(mAdvance) + CELL_PADDING * 2;
+        mCellHeight = mBaseline + (int) Math.ceil(fm.bottom);
+
+        int rows = (GLYPH_COUNT + ATLAS_COLUMNS - 1) / ATLAS_COLUMNS;
+        mAtlas = Bitmap.createBitmap(ATLAS_COLUMNS * mCellWidth, rows * mCellHeight, Bitmap.Config.ARGB_8888);
+
+        Canvas canvas = new Canvas(mAtlas);
+        char[] glyph = new char[1];
+        for (int i = 0; i < GLYPH_COUNT; i++) {
+            glyph[0] = (char) (FIRST_GLYPH + i);
+            canvas.drawText(glyph, 0, 1,
+                    (i % ATLAS_COLUMNS) * mCellWidth + CELL_PADDING,
+                    (i / ATLAS_COLUMNS) * mCellHeight + mBaseline,
+                    mPaint);
+        }
+    }
+
+    /**
+     * Whether this atlas still looks the same as text drawn with the given paint.
+     */
+    public boolean matches(Paint paint) {
+        return paint.getTextSize() == mPaint.getTextSize()
+                && paint.getColor() == mPaint.getColor()
+                && paint.isAntiAlias() == mPaint.isAntiAlias()
+                && paint.getTypeface() == mPaint.getTypeface();
+    }
+
+    public void drawText(Canvas canvas, char[] text, int start, int count, float x, float y) {
+        float penX = x;
+        for (int i = start; i < start + count; i++) {
+            char c = text[i];
+            if (c >= FIRST_GLYPH && c <= LAST_GLYPH) {
+                // Nothing to draw for a space, just move over
+                if (c != ' ') {
+                    int glyph = c - FIRST_GLYPH;
+                    int left = (glyph % ATLAS_COLUMNS) * mCellWidth;
+                    int top = (glyph / ATLAS_COLUMNS) * mCellHeight;
+                    mSrc.set(left, top, left + mCellWidth, top + mCellHeight);
+
+                    float dstLeft = penX - CELL_PADDING;
+                    float dstTop = y - mBaseline;
+                    mDst.set(dstLeft, dstTop, dstLeft + mCellWidth, dstTop + mCellHeight);
+
+                    canvas.drawBitmap(mAtlas, mSrc, mDst, null);
+                }
+                penX += mAdvance;
+            } else {
+                // Not in the atlas, so draw it the slow way (it might not be a full column wide)
+                canvas.drawText(text, i, 1, penX, y, mPaint);
+                penX += mPaint.measureText(text, i, 1);
+            }
+        }
+    }
+
+    public void recycle() {
+        mAtlas.recycle();
+    }
+}
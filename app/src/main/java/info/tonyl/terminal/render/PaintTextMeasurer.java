@@ -0,0 +1,26 @@
+package info.tonyl.terminal.render;
+
+import android.graphics.Paint;
+
+import info.tonyl.terminal.core.TextMeasurer;
+
+/**
+ * Measures text for the renderer's layout with an Android paint.
+ */
+public class PaintTextMeasurer implements TextMeasurer {
+    private final Paint mPaint;
+
+    public PaintTextMeasurer(Paint paint) {
+        mPaint = paint;
+    }
+
+    @Override
+    public float measureText(String text) {
+        return mPaint.measureText(text);
+    }
+
+    @Override
+    public float getLineSpacing() {
+        return mPaint.getFontSpacing();
+    }
+}
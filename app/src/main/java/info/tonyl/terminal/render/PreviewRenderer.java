@@ -0,0 +1,191 @@
+package info.tonyl.terminal.render;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextPaint;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import info.tonyl.terminal.R;
+import info.tonyl.terminal.constants.ComplicationDataConstants;
+import info.tonyl.terminal.core.TerminalRenderer;
+import info.tonyl.terminal.core.TimeSource;
+import info.tonyl.terminal.settings.SettingsSnapshot;
+
+/**
+ * Draws small previews of the face for the config screen. Drawing happens on its own background
+ * thread, so the list keeps scrolling smoothly while it's going, and the last few previews are kept
+ * by the settings they were drawn with, so going back to earlier settings doesn't draw them again.
+ *
+ * Everything here is meant to be called from the main thread, and listeners are only ever called on
+ * it.
+ */
+public class PreviewRenderer implements FontCache.Listener {
+    // Enough to flip a setting back and forth without drawing anything again
+    private static final int CACHE_SIZE = 4;
+
+    // Made up values for the complications, since the config screen doesn't get any. The
+    // temperature is only made up if a provider has been picked for it, otherwise it's left at
+    // "--" like the face shows it
+    private static final float SAMPLE_BATTERY = 60;
+    private static final String SAMPLE_STEPS = "1234";
+    private static final String SAMPLE_TEMPERATURE = "72 ℉";
+
+    public interface Listener {
+        void onPreviewRendered(Bitmap preview);
+    }
+
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final Map<SettingsSnapshot, Bitmap> mCache =
+            new LinkedHashMap<SettingsSnapshot, Bitmap>(CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<SettingsSnapshot, Bitmap> eldest) {
+                    // Not recycled, since it might still be on screen until the new one is
+                    return size() > CACHE_SIZE;
+                }
+            };
+
+    private final Context mContext;
+    private final int mSize;
+    private final boolean mRound;
+    private final String mStartMessagePostfix;
+    private final String mEndMessagePostfix;
+    private final String mUnsetProvider;
+    private final Listener mListener;
+
+    // The settings the listener is waiting on a preview for
+    private SettingsSnapshot mRequested;
+    private boolean mReleased;
+
+    /**
+     * Previews are drawn size by size pixels, which should be about the size they're shown at, not
+     * the size of the screen.
+     */
+    public PreviewRenderer(Context context, int size, Listener listener) {
+        mContext = context.getApplicationContext();
+        mSize = size;
+        mRound = mContext.getResources().getConfiguration().isScreenRound();
+        mStartMessagePostfix = mContext.getString(R.string.start_message_postfix);
+        mEndMessagePostfix = mContext.getString(R.string.end_message_postfix);
+        mUnsetProvider = mContext.getString(R.string.unset_config_value);
+        mListener = listener;
+
+        // Draw with a stand-in until the font is ready, then draw again with it
+        if (FontCache.getTypeface() == null) {
+            FontCache.preload(mContext);
+            FontCache.addListener(this);
+        }
+    }
+
+    /**
+     * Gets a preview for the settings. If there's one already, it's returned right away. Otherwise
+     * this returns null, and the listener gets it once it's drawn (unless other settings were asked
+     * for in the meantime).
+     */
+    public Bitmap request(final SettingsSnapshot settings) {
+        mRequested = settings;
+        Bitmap cached = mCache.get(settings);
+        if (cached != null || mReleased) {
+            return cached;
+        }
+
+        Typeface typeface = FontCache.getTypeface();
+        final Typeface drawTypeface = typeface != null ? typeface : Typeface.MONOSPACE;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap preview = draw(settings, drawTypeface);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onRendered(settings, drawTypeface, preview);
+                    }
+                });
+            }
+        });
+        return null;
+    }
+
+    private void onRendered(SettingsSnapshot settings, Typeface typeface, Bitmap preview) {
+        if (mReleased) {
+            preview.recycle();
+            return;
+        }
+        // If the font loaded while this was drawing, it's still worth showing, but not keeping
+        Typeface loaded = FontCache.getTypeface();
+        if (loaded == null || loaded == typeface) {
+            mCache.put(settings, preview);
+        }
+        if (settings.equals(mRequested)) {
+            mListener.onPreviewRendered(preview);
+        }
+    }
+
+    @Override
+    public void onTypefaceLoaded(Typeface typeface) {
+        // Everything so far was drawn with the stand-in. FontCache forgets listeners once it's
+        // called them, so there's nothing to remove here
+        mCache.clear();
+        if (mRequested != null && !mReleased) {
+            request(mRequested);
+        }
+    }
+
+    /**
+     * Stops drawing previews. Anything still being drawn is thrown away.
+     */
+    public void release() {
+        mReleased = true;
+        FontCache.removeListener(this);
+        mExecutor.shutdown();
+        mCache.clear();
+    }
+
+    /**
+     * Draws the face the same way the engine does, with the sample values. Runs on the background
+     * thread, so it only uses things made here.
+     */
+    private Bitmap draw(SettingsSnapshot settings, Typeface typeface) {
+        TextPaint[] paints = new TextPaint[TerminalRenderer.NUM_STYLES];
+        for (int i = 0; i < TerminalRenderer.NUM_STYLES; i++) {
+            TextPaint p = new TextPaint();
+            p.setTypeface(typeface);
+            p.setAntiAlias(true);
+            p.setTextAlign(Paint.Align.LEFT);
+            p.setColor(TerminalRenderer.getColor(i, false));
+            p.setTextSize(TerminalRenderer.getTextSize(mSize));
+            paints[i] = p;
+        }
+
+        TerminalRenderer renderer = new TerminalRenderer(TimeSource.SYSTEM);
+        renderer.setRound(mRound);
+        renderer.set24Hour(settings.use24Hour());
+        renderer.setShowSeconds(settings.showSeconds());
+        renderer.setTemperatureUnit(settings.getTempUnit());
+        String username = settings.getUsername();
+        renderer.setUsernameMessages(username + mStartMessagePostfix, username + mEndMessagePostfix);
+        renderer.layout(mSize, mSize, new PaintTextMeasurer(paints[TerminalRenderer.BASE_STYLE]));
+
+        renderer.setRangedValue(TerminalRenderer.BATTERY_LINE, SAMPLE_BATTERY, 0, 100);
+        renderer.setText(TerminalRenderer.STEP_LINE, SAMPLE_STEPS);
+        renderer.setTemperature(mUnsetProvider.equals(settings.getWeather())
+                ? ComplicationDataConstants.NO_INFO
+                : SAMPLE_TEMPERATURE);
+
+        Bitmap preview = Bitmap.createBitmap(mSize, mSize, Bitmap.Config.ARGB_8888);
+        CanvasTextSink sink = new CanvasTextSink(paints, new GlyphAtlas[TerminalRenderer.NUM_STYLES], false);
+        sink.setCanvas(new Canvas(preview));
+        renderer.drawStatic(sink);
+        renderer.drawValues(sink, false);
+        return preview;
+    }
+}
@@ -0,0 +1,168 @@
+package info.tonyl.terminal.render;
+
+import android.graphics.Canvas;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
+import android.os.Build;
+
+import androidx.annotation.RequiresApi;
+
+import info.tonyl.terminal.core.TerminalRenderer;
+import info.tonyl.terminal.core.TextSink;
+
+/**
+ * Draws the terminal on a hardware canvas with display lists: one RenderNode for the static part,
+ * and one for each row of values. A row's node is only recorded again when what's drawn in it
+ * changes, so most frames just replay the nodes that are already there.
+ * <p>
+ * Anything that changes how things look without changing the text (the paints, the layout) has to
+ * be followed by a call to invalidate.
+ */
+@RequiresApi(api = Build.VERSION_CODES.Q)
+public class RenderNodeTextSink implements TextSink {
+    private final CanvasTextSink mRecorder;
+    private final RenderNode mStaticNode = new RenderNode("static");
+    private int mWidth;
+    private int mHeight;
+
+    // What's recorded in each row's node, to tell whether it has to be recorded again
+    private RenderNode[] mRowNodes = new RenderNode[0];
+    private char[][] mRowText = new char[0][];
+    private int[] mRowLength = new int[0];
+    private float[] mRowX = new float[0];
+    private float[] mRowY = new float[0];
+    private int[] mRowStyle = new int[0];
+
+    // Which row the next drawText is for, while drawing a frame
+    private int mRow;
+    private int mRowCount;
+
+    /**
+     * The recorder draws into the nodes as they're recorded.
+     */
+    public RenderNodeTextSink(CanvasTextSink recorder) {
+        mRecorder = recorder;
+    }
+
+    public void setSize(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+        mStaticNode.setPosition(0, 0, width, height);
+        for (RenderNode node : mRowNodes) {
+            node.setPosition(0, 0, width, height);
+        }
+        invalidate();
+    }
+
+    /**
+     * Throws away everything recorded, so it all gets recorded again on the next draw.
+     */
+    public void invalidate() {
+        mStaticNode.discardDisplayList();
+        for (RenderNode node : mRowNodes) {
+            node.discardDisplayList();
+        }
+    }
+
+    /**
+     * Draws the whole interactive frame onto the canvas, which has to be hardware accelerated.
+     */
+    public void draw(Canvas canvas, TerminalRenderer renderer) {
+        if (!mStaticNode.hasDisplayList()) {
+            RecordingCanvas recording = mStaticNode.beginRecording(mWidth, mHeight);
+            mRecorder.setCanvas(recording);
+            renderer.drawStatic(mRecorder);
+            mStaticNode.endRecording();
+        }
+
+        // The renderer draws one piece of text per row, in order
+        mRow = 0;
+        renderer.drawValues(this, false);
+        mRowCount = mRow;
+
+        canvas.drawRenderNode(mStaticNode);
+        for (int i = 0; i < mRowCount; i++) {
+            canvas.drawRenderNode(mRowNodes[i]);
+        }
+    }
+
+    @Override
+    public void drawBackground(int color) {
+        // The background is part of the static node, and the values never draw one
+    }
+
+    @Override
+    public void drawText(char[] text, int start, int count, float x, float y, int style) {
+        int row = mRow++;
+        ensureRows(row + 1);
+
+        RenderNode node = mRowNodes[row];
+        if (node.hasDisplayList() && isSame(row, text, start, count, x, y, style)) {
+            return;
+        }
+
+        // Remember what's in the node, reusing the last array if it's big enough
+        if (mRowText[row] == null || mRowText[row].length < count) {
+            mRowText[row] = new char[Math.max(count, 16)];
+        }
+        System.arraycopy(text, start, mRowText[row], 0, count);
+        mRowLength[row] = count;
+        mRowX[row] = x;
+        mRowY[row] = y;
+        mRowStyle[row] = style;
+
+        RecordingCanvas recording = node.beginRecording(mWidth, mHeight);
+        mRecorder.setCanvas(recording);
+        mRecorder.drawText(text, start, count, x, y, style);
+        node.endRecording();
+    }
+
+    private boolean isSame(int row, char[] text, int start, int count, float x, float y, int style) {
+        if (mRowLength[row] != count || mRowX[row] != x || mRowY[row] != y || mRowStyle[row] != style) {
+            return false;
+        }
+        char[] recorded = mRowText[row];
+        for (int i = 0; i < count; i++) {
+            if (recorded[i] != text[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensureRows(int rows) {
+        int oldRows = mRowNodes.length;
+        if (rows <= oldRows) {
+            return;
+        }
+
+        // Only happens on the first frame after a layout adds rows
+        RenderNode[] nodes = new RenderNode[rows];
+        System.arraycopy(mRowNodes, 0, nodes, 0, oldRows);
+        for (int i = oldRows; i < rows; i++) {
+            nodes[i] = new RenderNode("row" + i);
+            nodes[i].setPosition(0, 0, mWidth, mHeight);
+        }
+        mRowNodes = nodes;
+
+        char[][] text = new char[rows][];
+        System.arraycopy(mRowText, 0, text, 0, oldRows);
+        mRowText = text;
+
+        int[] length = new int[rows];
+        System.arraycopy(mRowLength, 0, length, 0, oldRows);
+        mRowLength = length;
+
+        float[] x = new float[rows];
+        System.arraycopy(mRowX, 0, x, 0, oldRows);
+        mRowX = x;
+
+        float[] y = new float[rows];
+        System.arraycopy(mRowY, 0, y, 0, oldRows);
+        mRowY = y;
+
+        int[] style = new int[rows];
+        System.arraycopy(mRowStyle, 0, style, 0, oldRows);
+        mRowStyle = style;
+    }
+}
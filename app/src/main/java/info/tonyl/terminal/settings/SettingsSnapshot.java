@@ -0,0 +1,102 @@
+package info.tonyl.terminal.settings;
+
+import java.util.Objects;
+
+import info.tonyl.terminal.constants.Settings;
+
+/**
+ * Every setting, as of one moment. These never change once made, so they can be read from any
+ * thread without locking; a change to any setting makes a new one. Two with the same settings are
+ * equal, so they can be used as keys for anything made from them.
+ */
+public final class SettingsSnapshot {
+    private final String mWeather;
+    private final String mUsername;
+    private final boolean mUse24Hour;
+    private final boolean mShowSeconds;
+    private final String mTempUnit;
+
+    SettingsSnapshot(String weather, String username, boolean use24Hour, boolean showSeconds,
+            String tempUnit) {
+        mWeather = weather;
+        mUsername = username;
+        mUse24Hour = use24Hour;
+        mShowSeconds = showSeconds;
+        mTempUnit = tempUnit;
+    }
+
+    /**
+     * Makes a copy of this with one setting changed. The value has to be the type that setting is
+     * stored as.
+     */
+    SettingsSnapshot with(String key, Object value) {
+        String weather = mWeather;
+        String username = mUsername;
+        boolean use24Hour = mUse24Hour;
+        boolean showSeconds = mShowSeconds;
+        String tempUnit = mTempUnit;
+
+        switch (key) {
+            case Settings.SETTING_WEATHER:
+                weather = (String) value;
+                break;
+            case Settings.SETTING_USERNAME:
+                username = (String) value;
+                break;
+            case Settings.SETTING_24_HOUR:
+                use24Hour = (Boolean) value;
+                break;
+            case Settings.SETTING_SHOW_SECONDS:
+                showSeconds = (Boolean) value;
+                break;
+            case Settings.SETTING_TEMP_UNIT:
+                tempUnit = (String) value;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown setting " + key);
+        }
+
+        return new SettingsSnapshot(weather, username, use24Hour, showSeconds, tempUnit);
+    }
+
+    public String getWeather() {
+        return mWeather;
+    }
+
+    public String getUsername() {
+        return mUsername;
+    }
+
+    public boolean use24Hour() {
+        return mUse24Hour;
+    }
+
+    public boolean showSeconds() {
+        return mShowSeconds;
+    }
+
+    public String getTempUnit() {
+        return mTempUnit;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SettingsSnapshot)) {
+            return false;
+        }
+        SettingsSnapshot other = (SettingsSnapshot) o;
+        return mUse24Hour == other.mUse24Hour
+                && mShowSeconds == other.mShowSeconds
+                && Objects.equals(mWeather, other.mWeather)
+                && Objects.equals(mUsername, other.mUsername)
+                && Objects.equals(mTempUnit, other.mTempUnit);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(mWeather, mUsername, mUse24Hour, mShowSeconds, mTempUnit);
+    }
+}
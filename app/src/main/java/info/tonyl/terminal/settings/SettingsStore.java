@@ -0,0 +1,194 @@
+package info.tonyl.terminal.settings;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import info.tonyl.terminal.R;
+import info.tonyl.terminal.constants.Settings;
+import info.tonyl.terminal.constants.TemperatureConstants;
+
+/**
+ * The one place settings are read and written, shared by every engine and the config screen.
+ *
+ * The pref file is only touched on a background thread. Until it's been loaded, the snapshot has
+ * the defaults in it. Changes show up in the snapshot (and go out to listeners) right away, and are
+ * written out together a little later.
+ *
+ * Apart from getSnapshot, which is safe from anywhere, everything here is meant to be called from
+ * the main thread, and listeners are only ever called on it.
+ */
+public class SettingsStore {
+    // How long to wait for more changes before writing them all out
+    private static final long WRITE_DELAY_MS = TimeUnit.SECONDS.toMillis(1);
+
+    public interface Listener {
+        void onSettingsChanged(SettingsSnapshot settings);
+    }
+
+    private static SettingsStore mInstance;
+
+    private final Context mContext;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private final List<Listener> mListeners = new ArrayList<>();
+
+    private volatile SettingsSnapshot mSnapshot;
+    private boolean mLoaded;
+
+    // Changes that haven't been written out yet (or that came in before the load finished)
+    private final Map<String, Object> mPendingWrites = new HashMap<>();
+    private boolean mWriteScheduled;
+
+    private final Runnable mWriteRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mWriteScheduled = false;
+            flush();
+        }
+    };
+
+    /**
+     * Gets the store, starting to load the settings if this is the first time.
+     */
+    public static SettingsStore get(Context context) {
+        if (mInstance == null) {
+            mInstance = new SettingsStore(context.getApplicationContext());
+        }
+        return mInstance;
+    }
+
+    private SettingsStore(Context context) {
+        mContext = context;
+        mSnapshot = new SettingsSnapshot(
+                mContext.getString(R.string.unset_config_value),
+                mContext.getString(R.string.default_username),
+                false,
+                true,
+                TemperatureConstants.UNIT_AS_PROVIDED);
+        load();
+    }
+
+    private void load() {
+        final SettingsSnapshot defaults = mSnapshot;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                SharedPreferences prefs = getPrefs();
+                final SettingsSnapshot loaded = new SettingsSnapshot(
+                        prefs.getString(Settings.SETTING_WEATHER, defaults.getWeather()),
+                        prefs.getString(Settings.SETTING_USERNAME, defaults.getUsername()),
+                        prefs.getBoolean(Settings.SETTING_24_HOUR, defaults.use24Hour()),
+                        prefs.getBoolean(Settings.SETTING_SHOW_SECONDS, defaults.showSeconds()),
+                        prefs.getString(Settings.SETTING_TEMP_UNIT, defaults.getTempUnit()));
+
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onLoaded(loaded);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onLoaded(SettingsSnapshot loaded) {
+        mLoaded = true;
+
+        // Anything changed before this finished still wins over what was in the file
+        SettingsSnapshot snapshot = loaded;
+        for (Map.Entry<String, Object> change : mPendingWrites.entrySet()) {
+            snapshot = snapshot.with(change.getKey(), change.getValue());
+        }
+        publish(snapshot);
+        scheduleWrite();
+    }
+
+    private SharedPreferences getPrefs() {
+        return mContext.getSharedPreferences(Settings.PREF_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Gets the current settings. Can be called from any thread.
+     */
+    public SettingsSnapshot getSnapshot() {
+        return mSnapshot;
+    }
+
+    public void addListener(Listener listener) {
+        mListeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    public void putString(String key, String value) {
+        put(key, value);
+    }
+
+    public void putBoolean(String key, boolean value) {
+        put(key, value);
+    }
+
+    private void put(String key, Object value) {
+        publish(mSnapshot.with(key, value));
+        mPendingWrites.put(key, value);
+        scheduleWrite();
+    }
+
+    private void publish(SettingsSnapshot snapshot) {
+        mSnapshot = snapshot;
+        for (Listener listener : new ArrayList<>(mListeners)) {
+            listener.onSettingsChanged(snapshot);
+        }
+    }
+
+    private void scheduleWrite() {
+        if (mWriteScheduled || mPendingWrites.isEmpty()) {
+            return;
+        }
+        mWriteScheduled = true;
+        mMainHandler.postDelayed(mWriteRunnable, WRITE_DELAY_MS);
+    }
+
+    /**
+     * Writes out any changes right away, instead of waiting for more to come in. Nothing is written
+     * until the settings have loaded, so the writes can't be overwritten by the load.
+     */
+    public void flush() {
+        if (!mLoaded || mPendingWrites.isEmpty()) {
+            return;
+        }
+        if (mWriteScheduled) {
+            mMainHandler.removeCallbacks(mWriteRunnable);
+            mWriteScheduled = false;
+        }
+
+        final Map<String, Object> writes = new HashMap<>(mPendingWrites);
+        mPendingWrites.clear();
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                SharedPreferences.Editor editor = getPrefs().edit();
+                for (Map.Entry<String, Object> write : writes.entrySet()) {
+                    if (write.getValue() instanceof Boolean) {
+                        editor.putBoolean(write.getKey(), (Boolean) write.getValue());
+                    } else {
+                        editor.putString(write.getKey(), (String) write.getValue());
+                    }
+                }
+                editor.apply();
+            }
+        });
+    }
+}
@@ -0,0 +1,111 @@
+package info.tonyl.terminal.harness;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineMetrics;
+import java.awt.image.BufferedImage;
+
+import info.tonyl.terminal.core.TerminalRenderer;
+import info.tonyl.terminal.core.TextSink;
+
+/**
+ * Draws what the renderer sends it by copying glyphs out of pre-rasterized atlases, standing in for
+ * CanvasTextSink with its glyph atlases on. Laid out the same way as GlyphAtlas: printable ASCII on
+ * a grid of padded cells, one atlas per style, with anything else falling back to drawString.
+ * <p>
+ * Only for interactive frames, since the atlases are drawn antialiased.
+ */
+public class AwtGlyphAtlasSink implements TextSink {
+    private static final char FIRST_GLYPH = ' ';
+    private static final char LAST_GLYPH = '~';
+    private static final int GLYPH_COUNT = LAST_GLYPH - FIRST_GLYPH + 1;
+    private static final int ATLAS_COLUMNS = 16;
+    private static final int CELL_PADDING = 2;
+
+    private final Color[] mColors = new Color[TerminalRenderer.NUM_STYLES];
+    private final BufferedImage[] mAtlases = new BufferedImage[TerminalRenderer.NUM_STYLES];
+    private final float mAdvance;
+    private final int mCellWidth;
+    private final int mCellHeight;
+    private final int mBaseline;
+    private Graphics2D mGraphics;
+    private int mWidth;
+    private int mHeight;
+
+    public AwtGlyphAtlasSink(Font font) {
+        FontRenderContext frc = new FontRenderContext(null, true, true);
+        LineMetrics metrics = font.getLineMetrics("M", frc);
+        mAdvance = (float) font.getStringBounds("M", frc).getWidth();
+        mBaseline = (int) Math.ceil(metrics.getAscent());
+        mCellWidth = (int) Math.ceil(mAdvance) + CELL_PADDING * 2;
+        mCellHeight = mBaseline + (int) Math.ceil(metrics.getDescent());
+
+        int rows = (GLYPH_COUNT + ATLAS_COLUMNS - 1) / ATLAS_COLUMNS;
+        for (int style = 0; style < TerminalRenderer.NUM_STYLES; style++) {
+            mColors[style] = new Color(TerminalRenderer.getColor(style, false), true);
+
+            BufferedImage atlas = new BufferedImage(ATLAS_COLUMNS * mCellWidth, rows * mCellHeight,
+                    BufferedImage.TYPE_INT_ARGB);
+            Graphics2D graphics = atlas.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                    RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS,
+                    RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+            graphics.setFont(font);
+            graphics.setColor(mColors[style]);
+            for (int i = 0; i < GLYPH_COUNT; i++) {
+                graphics.drawString(String.valueOf((char) (FIRST_GLYPH + i)),
+                        (i % ATLAS_COLUMNS) * mCellWidth + CELL_PADDING,
+                        (i / ATLAS_COLUMNS) * mCellHeight + mBaseline);
+            }
+            graphics.dispose();
+            mAtlases[style] = atlas;
+        }
+    }
+
+    public void setGraphics(Graphics2D graphics, int width, int height) {
+        mGraphics = graphics;
+        mWidth = width;
+        mHeight = height;
+    }
+
+    @Override
+    public void drawBackground(int color) {
+        mGraphics.setColor(new Color(color, true));
+        mGraphics.fillRect(0, 0, mWidth, mHeight);
+    }
+
+    @Override
+    public void drawText(char[] text, int start, int count, float x, float y, int style) {
+        BufferedImage atlas = mAtlases[style];
+        float penX = x;
+        for (int i = start; i < start + count; i++) {
+            char c = text[i];
+            if (c >= FIRST_GLYPH && c <= LAST_GLYPH) {
+                // Nothing to draw for a space, just move over
+                if (c != ' ') {
+                    int glyph = c - FIRST_GLYPH;
+                    int left = (glyph % ATLAS_COLUMNS) * mCellWidth;
+                    int top = (glyph / ATLAS_COLUMNS) * mCellHeight;
+                    int dstLeft = Math.round(penX) - CELL_PADDING;
+                    int dstTop = Math.round(y) - mBaseline;
+                    mGraphics.drawImage(atlas,
+                            dstLeft, dstTop, dstLeft + mCellWidth, dstTop + mCellHeight,
+                            left, top, left + mCellWidth, top + mCellHeight,
+                            null);
+                }
+                penX += mAdvance;
+            } else {
+                // Not in the atlas, so draw it the slow way
+                String glyph = String.valueOf(c);
+                mGraphics.setColor(mColors[style]);
+                mGraphics.drawString(glyph, penX, y);
+                penX += (float) mGraphics.getFont().getStringBounds(glyph,
+                        mGraphics.getFontRenderContext()).getWidth();
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package info.tonyl.terminal.harness;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineMetrics;
+
+import info.tonyl.terminal.core.TextMeasurer;
+
+/**
+ * Measures text with an AWT font, standing in for PaintTextMeasurer.
+ */
+public class AwtTextMeasurer implements TextMeasurer {
+    private final Font mFont;
+    private final FontRenderContext mContext;
+
+    public AwtTextMeasurer(Font font, FontRenderContext context) {
+        mFont = font;
+        mContext = context;
+    }
+
+    @Override
+    public float measureText(String text) {
+        return (float) mFont.getStringBounds(text, mContext).getWidth();
+    }
+
+    @Override
+    public float getLineSpacing() {
+        // Same as Paint.getFontSpacing: from one baseline to the next, including the leading
+        LineMetrics metrics = mFont.getLineMetrics("M", mContext);
+        return metrics.getAscent() + metrics.getDescent() + metrics.getLeading();
+    }
+}
@@ -0,0 +1,42 @@
+package info.tonyl.terminal.harness;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+
+import info.tonyl.terminal.core.TerminalRenderer;
+import info.tonyl.terminal.core.TextSink;
+
+/**
+ * Draws what the renderer sends it with AWT, standing in for CanvasTextSink. Styles are mapped to
+ * colors the same way the engine sets up its paints.
+ */
+public class AwtTextSink implements TextSink {
+    private final Color[] mColors = new Color[TerminalRenderer.NUM_STYLES];
+    private Graphics2D mGraphics;
+    private int mWidth;
+    private int mHeight;
+
+    public AwtTextSink(boolean ambient) {
+        for (int i = 0; i < TerminalRenderer.NUM_STYLES; i++) {
+            mColors[i] = new Color(TerminalRenderer.getColor(i, ambient), true);
+        }
+    }
+
+    public void setGraphics(Graphics2D graphics, int width, int height) {
+        mGraphics = graphics;
+        mWidth = width;
+        mHeight = height;
+    }
+
+    @Override
+    public void drawBackground(int color) {
+        mGraphics.setColor(new Color(color, true));
+        mGraphics.fillRect(0, 0, mWidth, mHeight);
+    }
+
+    @Override
+    public void drawText(char[] text, int start, int count, float x, float y, int style) {
+        mGraphics.setColor(mColors[style]);
+        mGraphics.drawString(new String(text, start, count), x, y);
+    }
+}
@@ -0,0 +1,471 @@
+package info.tonyl.terminal.harness;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TimeZone;
+
+import javax.imageio.ImageIO;
+
+import info.tonyl.terminal.core.TerminalRenderer;
+import info.tonyl.terminal.core.TimeSource;
+
+/**
+ * Renders the face on a plain JVM at the common watch sizes, round and square, interactive and
+ * ambient, and compares each one against a golden image. Also times how long an interactive frame
+ * takes at each size, against a baseline of how long it took before.
+ * <p>
+ * Raw frame times depend on the machine, so they're compared as a ratio to a reference frame timed
+ * alongside them: the same static layer copy and the same number of lines drawn straight with AWT,
+ * without the renderer. A slower machine makes both slower, so the ratio stays about the same.
+ * <p>
+ * It goes through the same steps as the engine, with AWT in place of the Android canvas: layout on
+ * the surface change, the ambient colors and antialiasing when switching modes, and on each draw
+ * the static layer copied in with the values drawn on top.
+ * <p>
+ * Also compares drawing the whole frame every time against copying in the static layer, and drawing
+ * the values with glyph atlases (what USE_GLYPH_ATLAS turns on in the engine) against drawing them
+ * as text, timing both ways and counting how many pixels come out different. Those only report,
+ * they never fail the run.
+ * <p>
+ * Run with: ./gradlew :benchmark:renderHarness (add --args="--update" to write new goldens and a
+ * new baseline after meaning to change how the face looks or how fast it draws). Exits with an
+ * error if any image doesn't match, or if frames at any size have gotten a lot slower.
+ */
+public class RenderHarness {
+    private static final int[] SIZES = {320, 390, 454, 480};
+
+    // Fixed, so the goldens are the same from run to run
+    private static final long NOW = 1700000000000L;
+
+    private static final int WARMUP_FRAMES = 500;
+    private static final int TIMED_FRAMES = 2000;
+
+    // Antialiasing can come out a shade different between JDKs, so allow a little off in each
+    // channel and a few pixels beyond that. Changing even one character of a value changes dozens
+    // of pixels by far more than this
+    private static final int CHANNEL_TOLERANCE = 16;
+    private static final int MAX_DIFFERENT_PIXELS = 8;
+
+    // Frame times are noisy, even as a ratio, so only a median ratio this many times the baseline
+    // counts as slower
+    private static final double MAX_SLOWDOWN = 1.5;
+    private static final String BASELINE_FILE = "frame_baseline.properties";
+
+    // What the reference frame draws, about as much text as the values
+    private static final String[] REFERENCE_LINES = {
+            "12:34:56 PM UTC", "Tue 14 Nov 2023", "[######----] 60%", "1234", "72°"};
+
+    // A value too long for any screen, on an extra line near the bottom where a round screen is
+    // narrower than a square one, so the goldens show where each gets cut off
+    private static final String LONG_LABEL = "[NOTE] ";
+    private static final String LONG_VALUE = "a value far too long to fit on the screen";
+
+    private final Font mFont;
+    private final File mGoldenDir;
+    private final boolean mUpdate;
+    private final Properties mBaseline = new Properties();
+
+    private RenderHarness(Font font, File goldenDir, boolean update) throws IOException {
+        mFont = font;
+        mGoldenDir = goldenDir;
+        mUpdate = update;
+
+        File baseline = new File(mGoldenDir, BASELINE_FILE);
+        if (!mUpdate && baseline.exists()) {
+            try (InputStream in = new FileInputStream(baseline)) {
+                mBaseline.load(in);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, FontFormatException {
+        // The time and date have to look the same wherever this runs
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        Locale.setDefault(Locale.US);
+
+        boolean update = false;
+        File fontFile = new File("../app/src/main/res/font/consolab.ttf");
+        File goldenDir = new File("src/harness/golden");
+        for (String arg : args) {
+            if (arg.equals("--update")) {
+                update = true;
+            } else if (arg.startsWith("--font=")) {
+                fontFile = new File(arg.substring("--font=".length()));
+            } else if (arg.startsWith("--goldens=")) {
+                goldenDir = new File(arg.substring("--goldens=".length()));
+            }
+        }
+
+        RenderHarness harness = new RenderHarness(
+                Font.createFont(Font.TRUETYPE_FONT, fontFile), goldenDir, update);
+
+        int failures = 0;
+        for (int size : SIZES) {
+            for (boolean round : new boolean[]{true, false}) {
+                for (boolean ambient : new boolean[]{false, true}) {
+                    if (!harness.check(size, round, ambient, false)) {
+                        failures++;
+                    }
+                }
+                if (!harness.check(size, round, false, true)) {
+                    failures++;
+                }
+            }
+        }
+        int slower = 0;
+        for (int size : SIZES) {
+            if (!harness.time(size)) {
+                slower++;
+            }
+        }
+        for (int size : SIZES) {
+            harness.compareStaticLayer(size);
+        }
+        for (int size : SIZES) {
+            harness.compareGlyphAtlas(size);
+        }
+        harness.writeBaselineIfUpdating();
+
+        if (failures > 0) {
+            System.out.println(failures + " image(s) didn't match their goldens");
+        }
+        if (slower > 0) {
+            System.out.println(slower + " size(s) drew frames more than " + MAX_SLOWDOWN
+                    + "x slower than the baseline, compared to the reference frame");
+        }
+        if (failures > 0 || slower > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Makes a renderer that's been through what onCreate, onSurfaceChanged and the first
+     * complication updates would do.
+     */
+    private TerminalRenderer makeRenderer(TimeSource timeSource, int size, boolean round,
+            boolean longValue, Graphics2D graphics) {
+        TerminalRenderer renderer = new TerminalRenderer(timeSource);
+        renderer.setRound(round);
+        int longLine = longValue ? renderer.addValueLine(LONG_LABEL, TerminalRenderer.BASE_STYLE) : -1;
+
+        Font font = mFont.deriveFont(TerminalRenderer.getTextSize(size));
+        graphics.setFont(font);
+        renderer.layout(size, size, new AwtTextMeasurer(font, graphics.getFontRenderContext()));
+
+        renderer.setUsernameMessages("tonyl@watch:~ $ now", "tonyl@watch:~ $ ");
+        renderer.setRangedValue(TerminalRenderer.BATTERY_LINE, 60, 0, 100);
+        renderer.setText(TerminalRenderer.STEP_LINE, "1234");
+        renderer.setTemperature("72 ℉");
+        if (longValue) {
+            renderer.setText(longLine, LONG_VALUE);
+        }
+        return renderer;
+    }
+
+    private static Graphics2D createGraphics(BufferedImage image, boolean ambient) {
+        Graphics2D graphics = image.createGraphics();
+        // Ambient mode turns antialiasing off, like onAmbientModeChanged does for the paints
+        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, ambient
+                ? RenderingHints.VALUE_TEXT_ANTIALIAS_OFF
+                : RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS,
+                RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        return graphics;
+    }
+
+    private boolean check(int size, boolean round, boolean ambient, boolean longValue) throws IOException {
+        String name = size + (round ? "_round" : "_square") + (ambient ? "_ambient" : "_interactive")
+                + (longValue ? "_long" : "");
+
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = createGraphics(image, ambient);
+        TerminalRenderer renderer = makeRenderer(() -> NOW, size, round, longValue, graphics);
+        AwtTextSink sink = new AwtTextSink(ambient);
+        sink.setGraphics(graphics, size, size);
+        renderer.drawStatic(sink);
+        renderer.drawValues(sink, ambient);
+
+        // Anything outside the circle isn't on the screen
+        if (round) {
+            Area outside = new Area(new Rectangle(0, 0, size, size));
+            outside.subtract(new Area(new Ellipse2D.Float(0, 0, size, size)));
+            graphics.setColor(Color.BLACK);
+            graphics.fill(outside);
+        }
+        graphics.dispose();
+
+        File golden = new File(mGoldenDir, name + ".png");
+        if (mUpdate || !golden.exists()) {
+            mGoldenDir.mkdirs();
+            ImageIO.write(image, "png", golden);
+            System.out.println(name + ": wrote golden");
+            return true;
+        }
+
+        int different = compare(ImageIO.read(golden), image);
+        boolean matches = different <= MAX_DIFFERENT_PIXELS;
+        System.out.println(String.format(Locale.US, "%s: %s (%d pixels differ)",
+                name, matches ? "ok" : "MISMATCH", different));
+        if (!matches) {
+            File actual = new File(mGoldenDir, name + ".actual.png");
+            ImageIO.write(image, "png", actual);
+            System.out.println("  wrote " + actual.getPath());
+        }
+        return matches;
+    }
+
+    /**
+     * Returns how many pixels have any channel off by more than the tolerance (or every pixel if the
+     * sizes don't even match).
+     */
+    private static int compare(BufferedImage expected, BufferedImage actual) {
+        if (expected.getWidth() != actual.getWidth() || expected.getHeight() != actual.getHeight()) {
+            return actual.getWidth() * actual.getHeight();
+        }
+
+        int different = 0;
+        for (int y = 0; y < actual.getHeight(); y++) {
+            for (int x = 0; x < actual.getWidth(); x++) {
+                int a = expected.getRGB(x, y);
+                int b = actual.getRGB(x, y);
+                for (int shift = 0; shift < 24; shift += 8) {
+                    if (Math.abs(((a >> shift) & 0xFF) - ((b >> shift) & 0xFF)) > CHANNEL_TOLERANCE) {
+                        different++;
+                        break;
+                    }
+                }
+            }
+        }
+        return different;
+    }
+
+    /**
+     * Times interactive frames at the given size, drawn the way drawInteractive does: the static
+     * layer is drawn once, and each frame copies it in and draws the values, with the time moving
+     * on a second every frame. Each one is timed right after a reference frame, so both see the
+     * same machine. Returns false if the median frame, as a ratio to the median reference frame, is
+     * too much more than the baseline ratio for that size.
+     */
+    private boolean time(int size) {
+        final long[] now = {NOW};
+
+        BufferedImage staticLayer = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D staticGraphics = createGraphics(staticLayer, false);
+        TerminalRenderer renderer = makeRenderer(() -> now[0], size, true, false, staticGraphics);
+        AwtTextSink staticSink = new AwtTextSink(false);
+        staticSink.setGraphics(staticGraphics, size, size);
+        renderer.drawStatic(staticSink);
+        staticGraphics.dispose();
+
+        BufferedImage frame = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = createGraphics(frame, false);
+        graphics.setFont(mFont.deriveFont(TerminalRenderer.getTextSize(size)));
+        AwtTextSink sink = new AwtTextSink(false);
+        sink.setGraphics(graphics, size, size);
+
+        // The reference frame puts its lines where the values go
+        float textX = size * 0.3f;
+        float lineSpacing = TerminalRenderer.getTextSize(size) * 1.2f;
+        float textY = size / 2f - lineSpacing * REFERENCE_LINES.length / 2;
+        Color color = new Color(TerminalRenderer.getColor(TerminalRenderer.TIME_STYLE, false), true);
+
+        long[] times = new long[TIMED_FRAMES];
+        long[] referenceTimes = new long[TIMED_FRAMES];
+        for (int i = -WARMUP_FRAMES; i < TIMED_FRAMES; i++) {
+            long start = System.nanoTime();
+            graphics.drawImage(staticLayer, 0, 0, null);
+            graphics.setColor(color);
+            for (int line = 0; line < REFERENCE_LINES.length; line++) {
+                graphics.drawString(REFERENCE_LINES[line], textX, textY + line * lineSpacing);
+            }
+            long referenceElapsed = System.nanoTime() - start;
+
+            now[0] += 1000;
+            start = System.nanoTime();
+            graphics.drawImage(staticLayer, 0, 0, null);
+            renderer.drawValues(sink, false);
+            long elapsed = System.nanoTime() - start;
+            if (i >= 0) {
+                times[i] = elapsed;
+                referenceTimes[i] = referenceElapsed;
+            }
+        }
+        graphics.dispose();
+
+        Arrays.sort(times);
+        Arrays.sort(referenceTimes);
+        double p50 = times[TIMED_FRAMES / 2] / 1000.0;
+        double referenceP50 = referenceTimes[TIMED_FRAMES / 2] / 1000.0;
+        double ratio = p50 / referenceP50;
+        System.out.println(String.format(Locale.US,
+                "%d: frame p50 %.1fus, p95 %.1fus, p99 %.1fus, reference p50 %.1fus, ratio %.2f",
+                size,
+                p50,
+                times[TIMED_FRAMES * 95 / 100] / 1000.0,
+                times[TIMED_FRAMES * 99 / 100] / 1000.0,
+                referenceP50,
+                ratio));
+
+        String key = Integer.toString(size);
+        String baseline = mBaseline.getProperty(key);
+        if (mUpdate || baseline == null) {
+            mBaseline.setProperty(key, String.format(Locale.US, "%.2f", ratio));
+            return true;
+        }
+        double limit = Double.parseDouble(baseline) * MAX_SLOWDOWN;
+        boolean fastEnough = ratio <= limit;
+        System.out.println(String.format(Locale.US, "  baseline ratio %s, %s",
+                baseline, fastEnough ? "ok" : "SLOWER"));
+        return fastEnough;
+    }
+
+    /**
+     * Times interactive frames at the given size drawn from the static layer, each right after the
+     * same frame drawn in full (the static part and then the values, as it was before the layer),
+     * and prints both medians along with how many pixels of the last frame came out different.
+     */
+    private void compareStaticLayer(int size) {
+        final long[] now = {NOW};
+
+        BufferedImage staticLayer = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D staticGraphics = createGraphics(staticLayer, false);
+        TerminalRenderer renderer = makeRenderer(() -> now[0], size, true, false, staticGraphics);
+        AwtTextSink staticSink = new AwtTextSink(false);
+        staticSink.setGraphics(staticGraphics, size, size);
+        renderer.drawStatic(staticSink);
+        staticGraphics.dispose();
+
+        Font font = mFont.deriveFont(TerminalRenderer.getTextSize(size));
+        BufferedImage fullFrame = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D fullGraphics = createGraphics(fullFrame, false);
+        fullGraphics.setFont(font);
+        AwtTextSink fullSink = new AwtTextSink(false);
+        fullSink.setGraphics(fullGraphics, size, size);
+
+        BufferedImage layerFrame = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D layerGraphics = createGraphics(layerFrame, false);
+        layerGraphics.setFont(font);
+        AwtTextSink layerSink = new AwtTextSink(false);
+        layerSink.setGraphics(layerGraphics, size, size);
+
+        long[] fullTimes = new long[TIMED_FRAMES];
+        long[] layerTimes = new long[TIMED_FRAMES];
+        for (int i = -WARMUP_FRAMES; i < TIMED_FRAMES; i++) {
+            now[0] += 1000;
+            long start = System.nanoTime();
+            renderer.drawStatic(fullSink);
+            renderer.drawValues(fullSink, false);
+            long fullElapsed = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            layerGraphics.drawImage(staticLayer, 0, 0, null);
+            renderer.drawValues(layerSink, false);
+            long layerElapsed = System.nanoTime() - start;
+            if (i >= 0) {
+                fullTimes[i] = fullElapsed;
+                layerTimes[i] = layerElapsed;
+            }
+        }
+        fullGraphics.dispose();
+        layerGraphics.dispose();
+
+        Arrays.sort(fullTimes);
+        Arrays.sort(layerTimes);
+        double fullP50 = fullTimes[TIMED_FRAMES / 2] / 1000.0;
+        double layerP50 = layerTimes[TIMED_FRAMES / 2] / 1000.0;
+        System.out.println(String.format(Locale.US,
+                "%d: static layer p50 %.1fus, full redraw p50 %.1fus, ratio %.2f, %d pixels differ",
+                size, layerP50, fullP50, layerP50 / fullP50, compare(fullFrame, layerFrame)));
+    }
+
+    /**
+     * Times interactive frames at the given size drawn with glyph atlases, each right after the
+     * same frame drawn as text, and prints both medians along with how many pixels of the last
+     * frame came out different between the two.
+     */
+    private void compareGlyphAtlas(int size) {
+        final long[] now = {NOW};
+
+        BufferedImage staticLayer = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D staticGraphics = createGraphics(staticLayer, false);
+        TerminalRenderer renderer = makeRenderer(() -> now[0], size, true, false, staticGraphics);
+        AwtTextSink staticSink = new AwtTextSink(false);
+        staticSink.setGraphics(staticGraphics, size, size);
+        renderer.drawStatic(staticSink);
+        staticGraphics.dispose();
+
+        Font font = mFont.deriveFont(TerminalRenderer.getTextSize(size));
+        BufferedImage textFrame = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D textGraphics = createGraphics(textFrame, false);
+        textGraphics.setFont(font);
+        AwtTextSink textSink = new AwtTextSink(false);
+        textSink.setGraphics(textGraphics, size, size);
+
+        BufferedImage atlasFrame = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D atlasGraphics = createGraphics(atlasFrame, false);
+        atlasGraphics.setFont(font);
+        AwtGlyphAtlasSink atlasSink = new AwtGlyphAtlasSink(font);
+        atlasSink.setGraphics(atlasGraphics, size, size);
+
+        long[] textTimes = new long[TIMED_FRAMES];
+        long[] atlasTimes = new long[TIMED_FRAMES];
+        for (int i = -WARMUP_FRAMES; i < TIMED_FRAMES; i++) {
+            now[0] += 1000;
+            long start = System.nanoTime();
+            textGraphics.drawImage(staticLayer, 0, 0, null);
+            renderer.drawValues(textSink, false);
+            long textElapsed = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            atlasGraphics.drawImage(staticLayer, 0, 0, null);
+            renderer.drawValues(atlasSink, false);
+            long atlasElapsed = System.nanoTime() - start;
+            if (i >= 0) {
+                textTimes[i] = textElapsed;
+                atlasTimes[i] = atlasElapsed;
+            }
+        }
+        textGraphics.dispose();
+        atlasGraphics.dispose();
+
+        Arrays.sort(textTimes);
+        Arrays.sort(atlasTimes);
+        double textP50 = textTimes[TIMED_FRAMES / 2] / 1000.0;
+        double atlasP50 = atlasTimes[TIMED_FRAMES / 2] / 1000.0;
+        System.out.println(String.format(Locale.US,
+                "%d: glyph atlas p50 %.1fus, drawText p50 %.1fus, ratio %.2f, %d pixels differ",
+                size, atlasP50, textP50, atlasP50 / textP50, compare(textFrame, atlasFrame)));
+    }
+
+    /**
+     * Writes out the frame times from this run as the new baseline, if there wasn't one or it was
+     * asked for.
+     */
+    private void writeBaselineIfUpdating() throws IOException {
+        File baseline = new File(mGoldenDir, BASELINE_FILE);
+        if (!mUpdate && baseline.exists()) {
+            return;
+        }
+        mGoldenDir.mkdirs();
+        try (OutputStream out = new FileOutputStream(baseline)) {
+            mBaseline.store(out, "Median interactive frame time over the median reference frame time, by screen size");
+        }
+        System.out.println("wrote " + baseline.getPath());
+    }
+}
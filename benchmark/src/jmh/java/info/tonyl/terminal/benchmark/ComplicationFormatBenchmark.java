@@ -0,0 +1,63 @@
+package info.tonyl.terminal.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Locale;
+
+import info.tonyl.terminal.constants.TemperatureConstants;
+import info.tonyl.terminal.text.CharText;
+import info.tonyl.terminal.text.RangedValueFormat;
+import info.tonyl.terminal.text.TemperatureFormat;
+
+/**
+ * The complication values, which are rebuilt whenever a provider pushes new data.
+ */
+@State(Scope.Thread)
+public class ComplicationFormatBenchmark {
+    private static final String[] TEMPERATURES = new String[100];
+
+    static {
+        for (int i = 0; i < TEMPERATURES.length; i++) {
+            TEMPERATURES[i] = i + " ℉";
+        }
+    }
+
+    private final RangedValueFormat mRangedValueFormat = new RangedValueFormat(Locale.getDefault());
+    private final CharText mBattery = new CharText(32);
+    private int mBatteryLevel;
+
+    private final TemperatureFormat mTemperatureFormat = new TemperatureFormat();
+    private final TemperatureFormat mConvertingFormat = new TemperatureFormat();
+    private int mTemperature;
+
+    @Setup
+    public void setUp() {
+        mConvertingFormat.setUnit(TemperatureConstants.UNIT_CELSIUS);
+    }
+
+    @Benchmark
+    public CharText formatBattery() {
+        mBatteryLevel = (mBatteryLevel + 1) % 101;
+        return mRangedValueFormat.format(mBatteryLevel, 0, 100, mBattery);
+    }
+
+    /**
+     * A provider pushing the same text again, which should hit the cache.
+     */
+    @Benchmark
+    public CharText formatTemperatureRepeated() {
+        return mTemperatureFormat.format("72 ℉");
+    }
+
+    /**
+     * A new temperature every time, converted from Fahrenheit to Celsius.
+     */
+    @Benchmark
+    public CharText formatTemperatureConverted() {
+        mTemperature = (mTemperature + 1) % TEMPERATURES.length;
+        return mConvertingFormat.format(TEMPERATURES[mTemperature]);
+    }
+}
@@ -0,0 +1,73 @@
+package info.tonyl.terminal.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import info.tonyl.terminal.core.TerminalRenderer;
+import info.tonyl.terminal.core.TextMeasurer;
+import info.tonyl.terminal.core.TextSink;
+
+/**
+ * A whole frame from the render core, minus the actual drawing.
+ */
+@State(Scope.Thread)
+public class RenderBenchmark {
+    @Param({"320", "454"})
+    public int mSize;
+
+    private TerminalRenderer mRenderer;
+    private long mNow;
+    private TextSink mSink;
+
+    @Setup
+    public void setUp(final Blackhole blackhole) {
+        mNow = System.currentTimeMillis();
+        mRenderer = new TerminalRenderer(() -> mNow);
+
+        // Consolas is monospaced, with an advance of about 0.55em
+        final float textSize = TerminalRenderer.getTextSize(mSize);
+        mRenderer.layout(mSize, mSize, new TextMeasurer() {
+            @Override
+            public float measureText(String text) {
+                return text.length() * textSize * 0.55f;
+            }
+
+            @Override
+            public float getLineSpacing() {
+                return textSize * 1.17f;
+            }
+        });
+        mRenderer.setUsernameMessages("tonyl@watch:~ $ now", "tonyl@watch:~ $");
+        mRenderer.setRangedValue(TerminalRenderer.BATTERY_LINE, 60, 0, 100);
+        mRenderer.setText(TerminalRenderer.STEP_LINE, "1234");
+        mRenderer.setTemperature("72 ℉");
+
+        mSink = new TextSink() {
+            @Override
+            public void drawBackground(int color) {
+                blackhole.consume(color);
+            }
+
+            @Override
+            public void drawText(char[] text, int start, int count, float x, float y, int style) {
+                blackhole.consume(text[start]);
+                blackhole.consume(y);
+            }
+        };
+    }
+
+    @Benchmark
+    public void drawValuesInteractive() {
+        mNow += 1000;
+        mRenderer.drawValues(mSink, false);
+    }
+
+    @Benchmark
+    public void drawStatic() {
+        mRenderer.drawStatic(mSink);
+    }
+}
@@ -0,0 +1,51 @@
+package info.tonyl.terminal.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import info.tonyl.terminal.text.CharText;
+import info.tonyl.terminal.text.TimeText;
+
+/**
+ * The [TIME] and [DATE] values, which are rebuilt on every frame.
+ */
+@State(Scope.Thread)
+public class TimeTextBenchmark {
+    private TimeText mTimeText;
+    private long mNow;
+
+    @Setup
+    public void setUp() {
+        mTimeText = new TimeText();
+        mNow = System.currentTimeMillis();
+    }
+
+    /**
+     * Simulates consecutive interactive frames, so the minute rolls over every 60 calls.
+     */
+    @Benchmark
+    public CharText makeTimeInteractive() {
+        mNow += 1000;
+        return mTimeText.makeTime(mNow, false);
+    }
+
+    /**
+     * Simulates consecutive ambient frames, which only happen once a minute.
+     */
+    @Benchmark
+    public CharText makeTimeAmbient() {
+        mNow += 60000;
+        return mTimeText.makeTime(mNow, true);
+    }
+
+    /**
+     * Simulates one frame a second, so the day rolls over every 86400 calls.
+     */
+    @Benchmark
+    public CharText makeDate() {
+        mNow += 1000;
+        return mTimeText.makeDate(mNow);
+    }
+}
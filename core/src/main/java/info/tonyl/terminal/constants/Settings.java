@@ -11,4 +11,7 @@ public class Settings {
     // Setting keys
     public static final String SETTING_WEATHER = "setting_weather_value";
     public static final String SETTING_USERNAME = "setting_username_value";
+    public static final String SETTING_24_HOUR = "setting_24_hour_value";
+    public static final String SETTING_TEMP_UNIT = "setting_temp_unit_value";
+    public static final String SETTING_SHOW_SECONDS = "setting_show_seconds_value";
 }
@@ -0,0 +1,17 @@
+package info.tonyl.terminal.constants;
+
+public class TemperatureConstants {
+    private TemperatureConstants() {
+        // Hiding constructor
+    }
+
+    public static final char FAHRENHEIT_SYMBOL = '℉';
+    public static final char CELSIUS_SYMBOL = '℃';
+    public static final char DEGREE_SYMBOL = '°';
+    public static final String TEMPERATURE_REPLACEMENT = "°";
+
+    // Values for Settings.SETTING_TEMP_UNIT
+    public static final String UNIT_AS_PROVIDED = "provided";
+    public static final String UNIT_FAHRENHEIT = "F";
+    public static final String UNIT_CELSIUS = "C";
+}
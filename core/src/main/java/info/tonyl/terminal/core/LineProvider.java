@@ -0,0 +1,24 @@
+package info.tonyl.terminal.core;
+
+import info.tonyl.terminal.text.CharText;
+
+/**
+ * One "[LABEL] value" row of the terminal. The label and style are read once per layout, and only
+ * getValue is called when drawing a frame, so it shouldn't allocate.
+ */
+public interface LineProvider {
+    /**
+     * The label drawn at the start of the row, with the space after it, like "[TIME] ".
+     */
+    String getLabel();
+
+    /**
+     * One of the TerminalRenderer style constants, for drawing the value with.
+     */
+    int getStyle();
+
+    /**
+     * The value to draw at the given time. The returned text is only read until the next call.
+     */
+    CharText getValue(long now, boolean ambient);
+}
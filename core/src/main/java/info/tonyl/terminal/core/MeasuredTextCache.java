@@ -0,0 +1,116 @@
+package info.tonyl.terminal.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers how wide text is, and what it looks like cut down to fit a column, so values only get
+ * measured when they change instead of on every frame. Holds at most a fixed number of entries,
+ * dropping the least recently used.
+ * <p>
+ * Everything in here depends on the measurer, so setting a new one (when the surface or font
+ * changes) empties it.
+ */
+public class MeasuredTextCache {
+    public static final String ELLIPSIS = "…";
+
+    private final int mCapacity;
+    private final LinkedHashMap<Key, String> mEntries;
+    private TextMeasurer mMeasurer;
+
+    private int mHits;
+    private int mMisses;
+
+    private static class Key {
+        final String mText;
+        final int mStyle;
+        final float mMaxWidth;
+
+        Key(String text, int style, float maxWidth) {
+            mText = text;
+            mStyle = style;
+            mMaxWidth = maxWidth;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return mStyle == other.mStyle
+                    && Float.compare(mMaxWidth, other.mMaxWidth) == 0
+                    && mText.equals(other.mText);
+        }
+
+        @Override
+        public int hashCode() {
+            return (mText.hashCode() * 31 + mStyle) * 31 + Float.floatToIntBits(mMaxWidth);
+        }
+    }
+
+    public MeasuredTextCache(final int capacity) {
+        mCapacity = capacity;
+        mEntries = new LinkedHashMap<Key, String>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+                return size() > mCapacity;
+            }
+        };
+    }
+
+    /**
+     * Sets what text is measured with, forgetting everything measured with the old one.
+     */
+    public void setMeasurer(TextMeasurer measurer) {
+        mMeasurer = measurer;
+        mEntries.clear();
+    }
+
+    /**
+     * Gets the text to draw in the given style: the full text if it fits in maxWidth, or as much of
+     * it as fits followed by an ellipsis.
+     */
+    public String fit(CharSequence text, int style, float maxWidth) {
+        Key key = new Key(text.toString(), style, maxWidth);
+        String display = mEntries.get(key);
+        if (display != null) {
+            mHits++;
+            return display;
+        }
+        mMisses++;
+
+        String full = key.mText;
+        display = mMeasurer.measureText(full) <= maxWidth ? full : truncate(full, maxWidth);
+        mEntries.put(key, display);
+        return display;
+    }
+
+    private String truncate(String text, float maxWidth) {
+        // Find the longest start of the text that still fits with the ellipsis after it
+        int low = 0;
+        int high = text.length() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (mMeasurer.measureText(text.substring(0, mid) + ELLIPSIS) <= maxWidth) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        // Don't split a surrogate pair
+        if (low > 0 && Character.isHighSurrogate(text.charAt(low - 1))) {
+            low--;
+        }
+        return text.substring(0, low) + ELLIPSIS;
+    }
+
+    public int getHits() {
+        return mHits;
+    }
+
+    public int getMisses() {
+        return mMisses;
+    }
+}
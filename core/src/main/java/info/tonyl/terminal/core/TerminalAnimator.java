@@ -0,0 +1,92 @@
+package info.tonyl.terminal.core;
+
+/**
+ * Times the terminal animation: the values being typed out when the face comes into view, then the
+ * cursor blinking for a little while. Outside of that, nothing moves, the cursor just stays on, and
+ * the face goes back to its normal ticks.
+ * <p>
+ * While the values are being typed out, frames are drawn at a fixed rate. If drawing a frame takes
+ * too much of that time, frames start getting skipped (up to a limit), and go back to normal once
+ * it's fast again. After that, frames are only drawn when the cursor blinks.
+ */
+public class TerminalAnimator {
+    public static final long FRAME_INTERVAL_MS = 33;
+
+    private static final long REVEAL_DURATION_MS = 600;
+    private static final long BLINK_INTERVAL_MS = 500;
+    private static final long BLINK_DURATION_MS = 4 * BLINK_INTERVAL_MS;
+
+    // Drawing a frame shouldn't take up more than this much of the frame interval
+    private static final long FRAME_BUDGET_NANOS = FRAME_INTERVAL_MS * 1_000_000 / 2;
+    private static final int MAX_FRAME_SKIP = 3;
+
+    private static final long NOT_RUNNING = -1;
+
+    private long mStartTime = NOT_RUNNING;
+    private int mFrameSkip;
+
+    /**
+     * Starts (or restarts) the animation from the beginning.
+     */
+    public void start(long now) {
+        mStartTime = now;
+    }
+
+    /**
+     * Stops the animation, leaving everything shown.
+     */
+    public void stop() {
+        mStartTime = NOT_RUNNING;
+    }
+
+    public boolean isRunning(long now) {
+        return mStartTime != NOT_RUNNING && now - mStartTime < REVEAL_DURATION_MS + BLINK_DURATION_MS;
+    }
+
+    /**
+     * How much of the values are typed out, from 0 to 1.
+     */
+    public float getReveal(long now) {
+        if (!isRunning(now)) {
+            return 1;
+        }
+        return Math.min(1, (now - mStartTime) / (float) REVEAL_DURATION_MS);
+    }
+
+    public boolean isCursorOn(long now) {
+        if (!isRunning(now)) {
+            return true;
+        }
+        long elapsed = now - mStartTime;
+        // Solid while typing, like a real terminal, and only blinks once it's done
+        if (elapsed < REVEAL_DURATION_MS) {
+            return true;
+        }
+        return ((elapsed - REVEAL_DURATION_MS) / BLINK_INTERVAL_MS) % 2 == 1;
+    }
+
+    /**
+     * Call after drawing a frame while the animation is running, so the frame rate can adapt.
+     */
+    public void onFrameDrawn(long drawNanos) {
+        if (drawNanos > FRAME_BUDGET_NANOS) {
+            if (mFrameSkip < MAX_FRAME_SKIP) {
+                mFrameSkip++;
+            }
+        } else if (drawNanos < FRAME_BUDGET_NANOS / 2 && mFrameSkip > 0) {
+            mFrameSkip--;
+        }
+    }
+
+    /**
+     * How long to wait before drawing the next animation frame.
+     */
+    public long getFrameDelay(long now) {
+        long elapsed = now - mStartTime;
+        if (elapsed < REVEAL_DURATION_MS) {
+            return FRAME_INTERVAL_MS * (1 + mFrameSkip);
+        }
+        // Nothing changes between blinks, so there's no point drawing until the next one
+        return BLINK_INTERVAL_MS - (elapsed - REVEAL_DURATION_MS) % BLINK_INTERVAL_MS;
+    }
+}
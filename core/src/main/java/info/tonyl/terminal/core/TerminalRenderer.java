@@ -0,0 +1,502 @@
+package info.tonyl.terminal.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import info.tonyl.terminal.perf.PerfStats;
+import info.tonyl.terminal.text.CharText;
+import info.tonyl.terminal.text.RangedValueFormat;
+import info.tonyl.terminal.text.TemperatureFormat;
+import info.tonyl.terminal.text.TimeText;
+
+/**
+ * Lays out and draws the terminal, independent of Android. The static part (the background, the
+ * username lines and the labels) and the values are drawn separately, so the static part can be
+ * cached by whoever is drawing it.
+ *
+ * Each row between the username lines comes from a LineProvider. Where every row goes is worked out
+ * once per layout, so drawing a frame is just one pass over the rows, however many there are. Rows
+ * whose values are set from outside (like complications) are value lines, and are set by the id
+ * they were added with.
+ *
+ * Each engine has its own renderer, and only uses it from its main thread, so nothing here is
+ * synchronized. Settings shared between engines come in through the SettingsStore snapshot.
+ */
+public class TerminalRenderer {
+    public static final int BASE_STYLE = 0;
+    public static final int TIME_STYLE = 1;
+    public static final int DATE_STYLE = 2;
+    public static final int BATTERY_STYLE = 3;
+    public static final int STEP_STYLE = 4;
+    public static final int TEMP_STYLE = 5;
+    public static final int NUM_STYLES = 6;
+
+    // The value lines every face has, in the order they were added
+    public static final int BATTERY_LINE = 0;
+    public static final int STEP_LINE = 1;
+    public static final int TEMP_LINE = 2;
+
+    private static final int BASE_TEXT_COLOR = 0xFFFFFFFF;
+    private static final int TIME_COLOR = 0xFF00FF00;
+    private static final int DATE_COLOR = 0xFF00FFFF;
+    private static final int BATTERY_COLOR = 0xFFFF00FF;
+    private static final int STEP_COLOR = 0xFFFF0000;
+    private static final int TEMP_COLOR = 0xFFFFFF00;
+    private static final int[] STYLE_COLORS = {BASE_TEXT_COLOR, TIME_COLOR, DATE_COLOR, BATTERY_COLOR, STEP_COLOR, TEMP_COLOR};
+
+    public static final int AMBIENT_COLOR = 0xFF888888;
+    public static final int BACKGROUND_COLOR = 0xFF000000;
+
+    private static final float TEXT_SIZE_RATIO = 0.0675f;
+    private static final float TEXT_X_RATIO = 0.095f;
+    private static final float TEXT_Y_ADJUST = 0.025f;
+    // How far values stay from the right edge of the screen
+    private static final float EDGE_PADDING_RATIO = 0.03f;
+
+    private static final int TEXT_CACHE_SIZE = 32;
+
+    private static final int PERF_TEXT_CAPACITY = 32;
+
+    private final TimeSource mTimeSource;
+    private final TimeText mTimeText = new TimeText();
+    private RangedValueFormat mRangedValueFormat = new RangedValueFormat(Locale.getDefault());
+    private final TemperatureFormat mTemperatureFormat = new TemperatureFormat();
+
+    private boolean mShowSeconds = true;
+
+    private final LineProvider mTimeLine = new LineProvider() {
+        @Override
+        public String getLabel() {
+            return "[TIME] ";
+        }
+
+        @Override
+        public int getStyle() {
+            return TIME_STYLE;
+        }
+
+        @Override
+        public CharText getValue(long now, boolean ambient) {
+            return mTimeText.makeTime(now, ambient || !mShowSeconds);
+        }
+    };
+
+    private final LineProvider mDateLine = new LineProvider() {
+        @Override
+        public String getLabel() {
+            return "[DATE] ";
+        }
+
+        @Override
+        public int getStyle() {
+            return DATE_STYLE;
+        }
+
+        @Override
+        public CharText getValue(long now, boolean ambient) {
+            return mTimeText.makeDate(now);
+        }
+    };
+
+    // Where setText and setRangedValue write to, indexed by the id addValueLine gave each one.
+    // Values are only rewritten when a provider pushes new data
+    private final List<TextLine> mValueLines = new ArrayList<>();
+    private final MeasuredTextCache mTextCache = new MeasuredTextCache(TEXT_CACHE_SIZE);
+
+    private PerfStats mPerfStats;
+    private final CharText mPerfString = new CharText(PERF_TEXT_CAPACITY);
+
+    private final LineProvider mPerfLine = new LineProvider() {
+        @Override
+        public String getLabel() {
+            return "[PERF] ";
+        }
+
+        @Override
+        public int getStyle() {
+            return BASE_STYLE;
+        }
+
+        @Override
+        public CharText getValue(long now, boolean ambient) {
+            return mPerfStats.formatDrawTimes(mPerfString);
+        }
+    };
+
+    // Every line, in the order they're shown
+    private final List<LineProvider> mLines = new ArrayList<>();
+
+    private String mStartMessage = "";
+    private String mEndMessage = "";
+    private char[] mStartChars = new char[0];
+    private char[] mEndChars = new char[0];
+
+    // A block cursor after the last line, and how much of the values are typed out
+    private static final char[] CURSOR = {'\u2588'};
+    private boolean mCursorVisible = true;
+    private float mReveal = 1;
+
+    private boolean mRound;
+    private int mWidth;
+    private int mHeight;
+    private TextMeasurer mMeasurer;
+
+    // Where everything goes, as of the last layout
+    private Row[] mRows = new Row[0];
+    private float mTextX;
+    private float mTextY;
+    private float mLineSpacing;
+    private float mCursorX;
+    private float mCursorY;
+
+    // Only used while drawing, to hold each row's value when they're being typed out
+    private CharText[] mRowValues = new CharText[0];
+
+    /**
+     * A line with everything it needs to be drawn already worked out.
+     */
+    private static class Row {
+        final LineProvider mProvider;
+        final char[] mLabel;
+        final int mStyle;
+        final float mValueX;
+        final float mY;
+
+        Row(LineProvider provider, float valueX, float y) {
+            mProvider = provider;
+            mLabel = provider.getLabel().toCharArray();
+            mStyle = provider.getStyle();
+            mValueX = valueX;
+            mY = y;
+        }
+    }
+
+    public TerminalRenderer(TimeSource timeSource) {
+        mTimeSource = timeSource;
+
+        mLines.add(mTimeLine);
+        mLines.add(mDateLine);
+        addValueLine("[BATT] ", BATTERY_STYLE);
+        addValueLine("[STEP] ", STEP_STYLE);
+        addValueLine("[TEMP] ", TEMP_STYLE);
+    }
+
+    public static int getColor(int style, boolean ambient) {
+        return ambient ? AMBIENT_COLOR : STYLE_COLORS[style];
+    }
+
+    public static float getTextSize(int height) {
+        return height * TEXT_SIZE_RATIO;
+    }
+
+    /**
+     * Shows an extra line with the draw time percentiles from the given stats, or hides it if
+     * they're null.
+     */
+    public void setPerfStats(PerfStats perfStats) {
+        mLines.remove(mPerfLine);
+        mPerfStats = perfStats;
+        if (perfStats != null) {
+            mLines.add(mPerfLine);
+        }
+        relayout();
+    }
+
+    /**
+     * How many values were already in the measured text cache when they were shown.
+     */
+    public int getTextCacheHits() {
+        return mTextCache.getHits();
+    }
+
+    /**
+     * How many values had to be measured (and maybe cut down) when they were shown.
+     */
+    public int getTextCacheMisses() {
+        return mTextCache.getMisses();
+    }
+
+    /**
+     * Adds another line after the others (and before the perf line, if it's shown). If there's been
+     * a layout already, everything is laid out again to make room for it.
+     */
+    public void addLine(LineProvider line) {
+        int index = mLines.indexOf(mPerfLine);
+        mLines.add(index >= 0 ? index : mLines.size(), line);
+        relayout();
+    }
+
+    public void removeLine(LineProvider line) {
+        if (mLines.remove(line)) {
+            relayout();
+        }
+    }
+
+    /**
+     * Adds a line whose value is set with setText or setRangedValue, after the others. Returns the
+     * id to set it by. It shows "--" until it's set.
+     */
+    public int addValueLine(String label, int style) {
+        TextLine line = new TextLine(label, style);
+        mValueLines.add(line);
+        addLine(line);
+        return mValueLines.size() - 1;
+    }
+
+    private TextLine getValueLine(int id) {
+        if (id < 0 || id >= mValueLines.size()) {
+            throw new IllegalArgumentException("No value line " + id);
+        }
+        return mValueLines.get(id);
+    }
+
+    /**
+     * Sets whether the screen is round, so values can be cut short before they run off the edge.
+     * Takes effect on the next layout.
+     */
+    public void setRound(boolean round) {
+        mRound = round;
+    }
+
+    /**
+     * Call when the screen size or shape changes (adding and removing lines lays out again on its
+     * own). The measurer has to already be set up for the text size from getTextSize.
+     */
+    public void layout(int width, int height, TextMeasurer measurer) {
+        mWidth = width;
+        mHeight = height;
+        mMeasurer = measurer;
+        mLineSpacing = measurer.getLineSpacing();
+
+        // rows - 1 is how many are in this list, but we need two more, the start and end messages
+        int count = mLines.size();
+        float totalTextHeight = ((count - 1) + 2) * mLineSpacing;
+
+        mTextX = width * TEXT_X_RATIO;
+        mTextY = height / 2f - (totalTextHeight / 2) + (height * TEXT_Y_ADJUST);
+
+        // The first line has the username in it, so the rows start on the second
+        mRows = new Row[count];
+        mTextCache.setMeasurer(measurer);
+        float y = mTextY + mLineSpacing;
+        for (int i = 0; i < count; i++) {
+            LineProvider line = mLines.get(i);
+            float valueX = mTextX + measurer.measureText(line.getLabel());
+            mRows[i] = new Row(line, valueX, y);
+
+            // Values that are set from outside get cut down to fit now, instead of when drawing
+            if (line instanceof TextLine) {
+                TextLine textLine = (TextLine) line;
+                textLine.setMaxWidth(getRightEdge(width, height, y) - valueX);
+                textLine.refit(mTextCache);
+            }
+            y += mLineSpacing;
+        }
+
+        // The cursor goes after the last line
+        mCursorX = mTextX + measurer.measureText(mEndMessage);
+        mCursorY = y;
+    }
+
+    /**
+     * Lays out again for the same screen, after the lines changed. Nothing to do before the first
+     * layout, since that will see them anyway.
+     */
+    private void relayout() {
+        if (mMeasurer != null) {
+            layout(mWidth, mHeight, mMeasurer);
+        }
+    }
+
+    /**
+     * How far right text on the line with the given baseline can go.
+     */
+    private float getRightEdge(int width, int height, float y) {
+        if (!mRound) {
+            return width - width * EDGE_PADDING_RATIO;
+        }
+
+        // Wherever the edge is closest, out of the top of the text and the baseline
+        float radius = width / 2f;
+        float centerY = height / 2f;
+        float dy = Math.max(Math.abs(y - centerY), Math.abs(y - mLineSpacing - centerY));
+        if (dy >= radius) {
+            return 0;
+        }
+        float halfChord = (float) Math.sqrt(radius * radius - dy * dy);
+        return radius + halfChord - width * EDGE_PADDING_RATIO;
+    }
+
+    /**
+     * Returns true if the messages are different from the last ones, meaning the static part has to
+     * be redrawn.
+     */
+    public boolean setUsernameMessages(String startMessage, String endMessage) {
+        if (startMessage.equals(mStartMessage) && endMessage.equals(mEndMessage)) {
+            return false;
+        }
+        mStartMessage = startMessage;
+        mEndMessage = endMessage;
+        mStartChars = startMessage.toCharArray();
+        mEndChars = endMessage.toCharArray();
+
+        if (mMeasurer != null) {
+            mCursorX = mTextX + mMeasurer.measureText(endMessage);
+        }
+        return true;
+    }
+
+    /**
+     * Sets whether the cursor is drawn after the last line in interactive mode (it never is in
+     * ambient mode).
+     */
+    public void setCursorVisible(boolean visible) {
+        mCursorVisible = visible;
+    }
+
+    /**
+     * Sets how much of the values are typed out in interactive mode, from 0 (none) to 1 (all of
+     * them). They're typed out in order, one line after the other.
+     */
+    public void setReveal(float reveal) {
+        mReveal = reveal;
+    }
+
+    /**
+     * Changes how ranged values (like the battery) are drawn. Takes effect on the next update.
+     */
+    public void setRangedValueFormat(RangedValueFormat format) {
+        mRangedValueFormat = format;
+    }
+
+    /**
+     * Sets the value on the value line with the given id to a ranged value, drawn as a bar. Returns
+     * true if what's drawn changed (the setters below do the same). Throws IllegalArgumentException
+     * if there's no such line.
+     */
+    public boolean setRangedValue(int id, float value, float min, float max) {
+        return setRangedValue(id, value, min, max, "");
+    }
+
+    /**
+     * Sets the value on the value line with the given id to a ranged value, drawn as a bar, with
+     * the suffix after it.
+     */
+    public boolean setRangedValue(int id, float value, float min, float max, CharSequence suffix) {
+        TextLine line = getValueLine(id);
+        mRangedValueFormat.format(value, min, max, line.getText());
+        line.getText().append(suffix);
+        return line.refit(mTextCache);
+    }
+
+    /**
+     * Sets the value on the value line with the given id to plain text.
+     */
+    public boolean setText(int id, CharSequence text) {
+        return setText(id, text, "");
+    }
+
+    /**
+     * Sets the value on the value line with the given id to plain text, with the suffix after it.
+     */
+    public boolean setText(int id, CharSequence text, CharSequence suffix) {
+        TextLine line = getValueLine(id);
+        line.getText().set(text).append(suffix);
+        return line.refit(mTextCache);
+    }
+
+    /**
+     * Sets the temperature line's value, converted to the temperature unit.
+     */
+    public boolean setTemperature(String temperature) {
+        TextLine line = getValueLine(TEMP_LINE);
+        line.getText().set(mTemperatureFormat.format(temperature));
+        return line.refit(mTextCache);
+    }
+
+    /**
+     * Sets the unit to show temperatures in, one of the TemperatureConstants units.
+     */
+    public void setTemperatureUnit(String unit) {
+        TextLine line = getValueLine(TEMP_LINE);
+        line.getText().set(mTemperatureFormat.setUnit(unit));
+        line.refit(mTextCache);
+    }
+
+    public void onTimezoneChanged() {
+        mTimeText.onTimezoneChanged();
+    }
+
+    /**
+     * Sets whether the seconds are shown in interactive mode (they never are in ambient mode).
+     */
+    public void setShowSeconds(boolean showSeconds) {
+        mShowSeconds = showSeconds;
+    }
+
+    public void set24Hour(boolean use24Hour) {
+        mTimeText.set24Hour(use24Hour);
+    }
+
+    public void drawStatic(TextSink sink) {
+        // Clear screen
+        sink.drawBackground(BACKGROUND_COLOR);
+
+        // Draw text
+        float y = mTextY;
+
+        // Draw the first line (with the username in it)
+        sink.drawText(mStartChars, 0, mStartChars.length, mTextX, y, BASE_STYLE);
+        y += mLineSpacing;
+
+        for (Row row : mRows) {
+            sink.drawText(row.mLabel, 0, row.mLabel.length, mTextX, row.mY, BASE_STYLE);
+        }
+        y += mRows.length * mLineSpacing;
+
+        // Draw the last line (also has the username in it)
+        sink.drawText(mEndChars, 0, mEndChars.length, mTextX, y, BASE_STYLE);
+    }
+
+    public void drawValues(TextSink sink, boolean ambient) {
+        long now = mTimeSource.currentTimeMillis();
+
+        if (ambient || mReveal >= 1) {
+            for (Row row : mRows) {
+                CharText value = row.mProvider.getValue(now, ambient);
+                sink.drawText(value.getChars(), 0, value.length(), row.mValueX, row.mY, row.mStyle);
+            }
+        } else {
+            drawRevealedValues(sink, now);
+        }
+
+        if (!ambient && mCursorVisible) {
+            sink.drawText(CURSOR, 0, CURSOR.length, mCursorX, mCursorY, BASE_STYLE);
+        }
+    }
+
+    private void drawRevealedValues(TextSink sink, long now) {
+        Row[] rows = mRows;
+        // Only grows when there are more rows than ever before, so this doesn't allocate per frame
+        if (mRowValues.length < rows.length) {
+            mRowValues = new CharText[rows.length];
+        }
+
+        // Work out how many characters there are altogether, to know how many of them to draw
+        int total = 0;
+        for (int i = 0; i < rows.length; i++) {
+            mRowValues[i] = rows[i].mProvider.getValue(now, false);
+            total += mRowValues[i].length();
+        }
+
+        int remaining = (int) (total * Math.max(0, mReveal));
+        for (int i = 0; i < rows.length; i++) {
+            Row row = rows[i];
+            CharText value = mRowValues[i];
+            int count = Math.min(value.length(), remaining);
+            remaining -= count;
+            sink.drawText(value.getChars(), 0, count, row.mValueX, row.mY, row.mStyle);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package info.tonyl.terminal.core;
+
+import info.tonyl.terminal.constants.ComplicationDataConstants;
+import info.tonyl.terminal.text.CharText;
+
+/**
+ * A line whose value is only changed when someone sets it, like a complication's. What's drawn is
+ * the value cut down to fit the line's width, which is only worked out again by refit.
+ */
+class TextLine implements LineProvider {
+    // Longer than fits on any screen, so what's cut off is decided by refit
+    private static final int TEXT_CAPACITY = 64;
+
+    private final String mLabel;
+    private final int mStyle;
+    private final CharText mText = new CharText(TEXT_CAPACITY).set(ComplicationDataConstants.NO_INFO);
+    private final CharText mDisplay = new CharText(TEXT_CAPACITY).set(ComplicationDataConstants.NO_INFO);
+    private float mMaxWidth = Float.MAX_VALUE;
+
+    TextLine(String label, int style) {
+        mLabel = label;
+        mStyle = style;
+    }
+
+    /**
+     * The full value, for changing it in place. Call refit after changing it.
+     */
+    public CharText getText() {
+        return mText;
+    }
+
+    /**
+     * Sets how much room the value has. Call refit after changing it.
+     */
+    public void setMaxWidth(float maxWidth) {
+        mMaxWidth = maxWidth;
+    }
+
+    /**
+     * Works out what to draw from the value and the room there is for it. Until there's a width to
+     * fit in (before the first layout), the value is drawn as it is. Returns true if what's drawn
+     * changed.
+     */
+    public boolean refit(MeasuredTextCache cache) {
+        CharSequence display = mMaxWidth == Float.MAX_VALUE
+                ? mText : cache.fit(mText, mStyle, mMaxWidth);
+        if (mDisplay.contentEquals(display)) {
+            return false;
+        }
+        mDisplay.set(display);
+        return true;
+    }
+
+    @Override
+    public String getLabel() {
+        return mLabel;
+    }
+
+    @Override
+    public int getStyle() {
+        return mStyle;
+    }
+
+    @Override
+    public CharText getValue(long now, boolean ambient) {
+        return mDisplay;
+    }
+}
@@ -0,0 +1,14 @@
+package info.tonyl.terminal.core;
+
+/**
+ * Measures text for layout. Every style is the same font at the same size, so one measurer works
+ * for all of them.
+ */
+public interface TextMeasurer {
+    float measureText(String text);
+
+    /**
+     * The distance from one line's baseline to the next.
+     */
+    float getLineSpacing();
+}
@@ -0,0 +1,56 @@
+package info.tonyl.terminal.core;
+
+/**
+ * Keeps track of when each complication's text was last worked out, so a tick can ask the data
+ * whether it would come out any different now (a countdown ticking down, "5 min ago" turning into
+ * "6 min ago", or the data running out) instead of working it out again on every frame. It never
+ * wakes anything up itself: whatever tick comes along next does the asking.
+ */
+public class TextRefreshTracker {
+    private static final long NOT_SHOWN = -1;
+
+    private final long[] mShownAt;
+
+    /**
+     * Slots are the complication ids, from 0 up to (but not including) the given count.
+     */
+    public TextRefreshTracker(int slots) {
+        mShownAt = new long[slots];
+        for (int i = 0; i < slots; i++) {
+            mShownAt[i] = NOT_SHOWN;
+        }
+    }
+
+    /**
+     * Call when the slot's text has been worked out for the given time.
+     */
+    public void onShown(int slot, long now) {
+        if (slot >= 0 && slot < mShownAt.length) {
+            mShownAt[slot] = now;
+        }
+    }
+
+    /**
+     * Stops tracking the slot, for when it's showing something other than text.
+     */
+    public void clear(int slot) {
+        if (slot >= 0 && slot < mShownAt.length) {
+            mShownAt[slot] = NOT_SHOWN;
+        }
+    }
+
+    public int getSlotCount() {
+        return mShownAt.length;
+    }
+
+    public boolean isShowingText(int slot) {
+        return mShownAt[slot] != NOT_SHOWN;
+    }
+
+    /**
+     * Gets when the slot's text was last worked out. Only meaningful if isShowingText.
+     */
+    public long getShownAt(int slot) {
+        return mShownAt[slot];
+    }
+}
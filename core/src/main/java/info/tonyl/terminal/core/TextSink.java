@@ -0,0 +1,11 @@
+package info.tonyl.terminal.core;
+
+/**
+ * Where the renderer sends what it draws. The style is one of the TerminalRenderer style constants,
+ * which the sink maps to whatever it draws text with.
+ */
+public interface TextSink {
+    void drawBackground(int color);
+
+    void drawText(char[] text, int start, int count, float x, float y, int style);
+}
@@ -0,0 +1,77 @@
+package info.tonyl.terminal.core;
+
+/**
+ * Works out when the face next needs to wake up to redraw. The only thing that changes on its own
+ * is the time: every second if the seconds are shown, otherwise every minute (which also covers
+ * the date changing at midnight). Complications push their own updates, so they never need a
+ * wakeup here. Wakeups are always aligned to the second or minute boundary, so any lateness in
+ * one wakeup doesn't carry over to the next.
+ * <p>
+ * It also keeps track of how many wakeups this saved compared to waking up every second.
+ */
+public class TickScheduler {
+    private static final long SECOND_MS = 1000;
+    private static final long MINUTE_MS = 60 * SECOND_MS;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+
+    private boolean mShowSeconds = true;
+
+    // Counting for the current hour-long window
+    private long mWindowStart = -1;
+    private long mWindowWakeups;
+    private long mWindowRunningMs;
+    private long mRunningSince = -1;
+    private long mAvoidedLastHour;
+
+    public void setShowSeconds(boolean showSeconds) {
+        mShowSeconds = showSeconds;
+    }
+
+    public long getNextWakeup(long now) {
+        long unit = mShowSeconds ? SECOND_MS : MINUTE_MS;
+        return now - Math.floorMod(now, unit) + unit;
+    }
+
+    /**
+     * Call when the timer starts running. Only time spent running counts towards avoided wakeups.
+     */
+    public void start(long now) {
+        if (mRunningSince < 0) {
+            mRunningSince = now;
+            if (mWindowStart < 0) {
+                mWindowStart = now;
+            }
+        }
+    }
+
+    public void stop(long now) {
+        if (mRunningSince >= 0) {
+            mWindowRunningMs += now - mRunningSince;
+            mRunningSince = -1;
+        }
+    }
+
+    public void recordWakeup(long now) {
+        mWindowWakeups++;
+
+        if (mWindowStart >= 0 && now - mWindowStart >= HOUR_MS) {
+            long runningMs = mWindowRunningMs;
+            if (mRunningSince >= 0) {
+                runningMs += now - mRunningSince;
+                mRunningSince = now;
+            }
+            mAvoidedLastHour = Math.max(0, runningMs / SECOND_MS - mWindowWakeups);
+
+            mWindowStart = now;
+            mWindowWakeups = 0;
+            mWindowRunningMs = 0;
+        }
+    }
+
+    /**
+     * How many wakeups were avoided in the last full hour, compared to waking up every second.
+     */
+    public long getAvoidedWakeupsLastHour() {
+        return mAvoidedLastHour;
+    }
+}
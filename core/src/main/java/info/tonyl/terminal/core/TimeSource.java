@@ -0,0 +1,11 @@
+package info.tonyl.terminal.core;
+
+/**
+ * Where the renderer gets the current time from, so it can be driven by something other than the
+ * system clock.
+ */
+public interface TimeSource {
+    TimeSource SYSTEM = System::currentTimeMillis;
+
+    long currentTimeMillis();
+}
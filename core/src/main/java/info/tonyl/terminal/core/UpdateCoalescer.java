@@ -0,0 +1,66 @@
+package info.tonyl.terminal.core;
+
+/**
+ * Folds complication updates into as few redraws as possible. When an update comes in, it's drawn
+ * by whichever comes first: the next frame that was already going to happen, or one deferred frame
+ * that's allowed to be at most the max staleness late. Any more updates before that frame just
+ * get drawn along with it.
+ *
+ * Only updates that change what a line shows should be marked, so a provider pushing the same value
+ * again doesn't cause any drawing at all.
+ */
+public class UpdateCoalescer {
+    public static final long NO_FRAME = -1;
+
+    private final long mMaxStalenessMs;
+    private boolean mDirty;
+    private long mDeadline = NO_FRAME;
+
+    public UpdateCoalescer(long maxStalenessMs) {
+        mMaxStalenessMs = maxStalenessMs;
+    }
+
+    /**
+     * Marks that a line's value changed. nextFrameTime is when the next frame is already going to be
+     * drawn, or NO_FRAME if there isn't one coming. Returns how long to wait before drawing a
+     * deferred frame, or NO_FRAME if one isn't needed.
+     */
+    public long markDirty(long now, long nextFrameTime) {
+        mDirty = true;
+
+        // Already waiting on a frame, so this one just comes along for the ride
+        if (mDeadline != NO_FRAME) {
+            return NO_FRAME;
+        }
+
+        long deadline = now + mMaxStalenessMs;
+        if (nextFrameTime != NO_FRAME && nextFrameTime <= deadline) {
+            mDeadline = nextFrameTime;
+            return NO_FRAME;
+        }
+
+        mDeadline = deadline;
+        return mMaxStalenessMs;
+    }
+
+    /**
+     * Returns true if any line has changed since the last frame.
+     */
+    public boolean isDirty() {
+        return mDirty;
+    }
+
+    public void onFrameDrawn() {
+        mDirty = false;
+        mDeadline = NO_FRAME;
+    }
+
+    /**
+     * Forgets about the frame updates were waiting on, for when it's not going to happen after all
+     * (like when the tick stops). Otherwise later updates would keep waiting on it too, and never get
+     * drawn. Anything already changed stays dirty, for whatever frame does get drawn next.
+     */
+    public void onFrameCancelled() {
+        mDeadline = NO_FRAME;
+    }
+}
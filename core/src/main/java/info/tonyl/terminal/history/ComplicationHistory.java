@@ -0,0 +1,162 @@
+package info.tonyl.terminal.history;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import info.tonyl.terminal.text.CharText;
+
+/**
+ * Recent battery levels and step counts, and the estimates worked out from them: how long the
+ * battery has left at the rate it's been going down, and how many steps have been taken per hour.
+ */
+public class ComplicationHistory {
+    private static final int VERSION = 1;
+    private static final int CAPACITY = 96;
+
+    private static final long MINUTE_MS = 60 * 1000;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+
+    // How far back to look for the battery drain rate, and the least time it has to cover
+    private static final long DRAIN_WINDOW_MS = 6 * HOUR_MS;
+    private static final long MIN_DRAIN_SPAN_MS = 15 * MINUTE_MS;
+    private static final int MAX_REMAINING_HOURS = 99;
+
+    // Steps per hour are over the last hour, but need at least this much of it to go on
+    private static final long STEP_WINDOW_MS = HOUR_MS;
+    private static final long MIN_STEP_SPAN_MS = 5 * MINUTE_MS;
+
+    private final SampleHistory mBattery = new SampleHistory(CAPACITY);
+    private final SampleHistory mSteps = new SampleHistory(CAPACITY);
+
+    /**
+     * Records a battery level, as a percentage.
+     */
+    public void addBattery(long now, float percent) {
+        // Going up means it was charged, and the rate from before doesn't mean anything any more
+        if (mBattery.size() > 0 && percent > mBattery.getLatestValue()) {
+            mBattery.clear();
+        }
+        if (mBattery.size() == 0 || percent != mBattery.getLatestValue()) {
+            mBattery.add(now, percent);
+        }
+    }
+
+    /**
+     * Records a step count, from the text the provider sent. Anything that isn't just a number
+     * (maybe with grouping separators), like "1.2k", is ignored.
+     */
+    public void addSteps(long now, CharSequence text) {
+        long steps = parseCount(text);
+        if (steps >= 0) {
+            addStepCount(now, steps);
+        }
+    }
+
+    private void addStepCount(long now, long steps) {
+        // Going down means the count was reset (usually at midnight)
+        if (mSteps.size() > 0 && steps < mSteps.getLatestValue()) {
+            mSteps.clear();
+        }
+        mSteps.add(now, steps);
+    }
+
+    private static long parseCount(CharSequence text) {
+        if (text == null) {
+            return -1;
+        }
+        long count = 0;
+        int digits = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                count = count * 10 + (c - '0');
+                digits++;
+            } else if (c != ',' && c != '.' && c != ' ' && c != '\u00A0' && c != '\'') {
+                return -1;
+            }
+        }
+        return digits > 0 ? count : -1;
+    }
+
+    /**
+     * Appends how long the battery has left, like " ~5h", or nothing if there isn't enough history
+     * to tell yet.
+     */
+    public void appendBatteryRemaining(long now, CharText out) {
+        int first = mBattery.findFirstSince(now - DRAIN_WINDOW_MS);
+        if (first < 0) {
+            return;
+        }
+        long span = mBattery.getLatestTime() - mBattery.getTime(first);
+        float drained = mBattery.getValue(first) - mBattery.getLatestValue();
+        if (span < MIN_DRAIN_SPAN_MS || drained <= 0) {
+            return;
+        }
+
+        float remainingMs = mBattery.getLatestValue() / drained * span;
+        out.append(" ~");
+        if (remainingMs < HOUR_MS) {
+            out.append(Math.max(1, (long) (remainingMs / MINUTE_MS))).append('m');
+        } else {
+            out.append(Math.min(MAX_REMAINING_HOURS, (long) (remainingMs / HOUR_MS))).append('h');
+        }
+    }
+
+    /**
+     * Appends the steps per hour over the last hour, like " +560/h", or nothing if there isn't
+     * enough history to tell yet.
+     */
+    public void appendStepRate(long now, CharText out) {
+        int first = mSteps.findFirstSince(now - STEP_WINDOW_MS);
+        if (first < 0) {
+            return;
+        }
+        long span = mSteps.getLatestTime() - mSteps.getTime(first);
+        if (span < MIN_STEP_SPAN_MS) {
+            return;
+        }
+
+        float steps = mSteps.getLatestValue() - mSteps.getValue(first);
+        out.append(" +").append((long) (steps * HOUR_MS / span)).append("/h");
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(VERSION);
+        mBattery.writeTo(out);
+        mSteps.writeTo(out);
+    }
+
+    /**
+     * Reads what writeTo wrote. Whatever's been recorded here already is taken to be newer, so it's
+     * added again on top, going through the same checks as when it first came in. That way a charge
+     * or a step count reset since the stored samples still throws them away.
+     */
+    public void readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != VERSION) {
+            return;
+        }
+        SampleHistory newerBattery = copyOf(mBattery);
+        SampleHistory newerSteps = copyOf(mSteps);
+
+        mBattery.clear();
+        mBattery.readFrom(in);
+        mSteps.clear();
+        mSteps.readFrom(in);
+
+        for (int i = 0; i < newerBattery.size(); i++) {
+            addBattery(newerBattery.getTime(i), newerBattery.getValue(i));
+        }
+        for (int i = 0; i < newerSteps.size(); i++) {
+            addStepCount(newerSteps.getTime(i), (long) newerSteps.getValue(i));
+        }
+    }
+
+    private static SampleHistory copyOf(SampleHistory history) {
+        SampleHistory copy = new SampleHistory(history.getCapacity());
+        for (int i = 0; i < history.size(); i++) {
+            copy.add(history.getTime(i), history.getValue(i));
+        }
+        return copy;
+    }
+}
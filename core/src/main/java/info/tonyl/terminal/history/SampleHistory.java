@@ -0,0 +1,101 @@
+package info.tonyl.terminal.history;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The last few values of something, with when each was seen. Kept in fixed-size primitive arrays
+ * used as a ring, so it never grows and adding a sample never allocates: once it's full, each new
+ * sample replaces the oldest one.
+ */
+public class SampleHistory {
+    private final long[] mTimes;
+    private final float[] mValues;
+    private int mStart;
+    private int mSize;
+
+    public SampleHistory(int capacity) {
+        mTimes = new long[capacity];
+        mValues = new float[capacity];
+    }
+
+    public void add(long time, float value) {
+        int index = (mStart + mSize) % mTimes.length;
+        mTimes[index] = time;
+        mValues[index] = value;
+        if (mSize < mTimes.length) {
+            mSize++;
+        } else {
+            mStart = (mStart + 1) % mTimes.length;
+        }
+    }
+
+    public void clear() {
+        mStart = 0;
+        mSize = 0;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public int getCapacity() {
+        return mTimes.length;
+    }
+
+    /**
+     * Gets when a sample was seen, where 0 is the oldest one still kept.
+     */
+    public long getTime(int i) {
+        return mTimes[(mStart + i) % mTimes.length];
+    }
+
+    /**
+     * Gets a sample's value, where 0 is the oldest one still kept.
+     */
+    public float getValue(int i) {
+        return mValues[(mStart + i) % mValues.length];
+    }
+
+    public long getLatestTime() {
+        return getTime(mSize - 1);
+    }
+
+    public float getLatestValue() {
+        return getValue(mSize - 1);
+    }
+
+    /**
+     * Finds the oldest sample seen at or after the given time, or -1 if there isn't one.
+     */
+    public int findFirstSince(long time) {
+        for (int i = 0; i < mSize; i++) {
+            if (getTime(i) >= time) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Writes the samples, oldest first: the count, then each time and value.
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(mSize);
+        for (int i = 0; i < mSize; i++) {
+            out.writeLong(getTime(i));
+            out.writeFloat(getValue(i));
+        }
+    }
+
+    /**
+     * Adds the samples written by writeTo. If there are more than fit, only the newest are kept.
+     */
+    public void readFrom(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            add(in.readLong(), in.readFloat());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package info.tonyl.terminal.perf;
+
+/**
+ * Fixed-size histogram of non-negative values. Recording a value never allocates, so it's safe to
+ * use from the draw path. Values past the last bucket are counted in the last bucket, but the max
+ * is always exact.
+ */
+public class Histogram {
+    private final long mBucketWidth;
+    private final int[] mCounts;
+    private long mCount;
+    private long mMax;
+
+    public Histogram(long bucketWidth, int bucketCount) {
+        mBucketWidth = bucketWidth;
+        mCounts = new int[bucketCount];
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        int bucket = (int) Math.min(value / mBucketWidth, mCounts.length - 1);
+        mCounts[bucket]++;
+        mCount++;
+        if (value > mMax) {
+            mMax = value;
+        }
+    }
+
+    public long getCount() {
+        return mCount;
+    }
+
+    public long getMax() {
+        return mMax;
+    }
+
+    /**
+     * Gets the value that the given percent (0 to 100) of recorded values are at or below. This is
+     * the top of the matching bucket, so it's only as precise as the bucket width.
+     */
+    public long getPercentile(int percent) {
+        if (mCount == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (mCount * percent + 99) / 100);
+        long seen = 0;
+        for (int i = 0; i < mCounts.length; i++) {
+            seen += mCounts[i];
+            if (seen >= rank) {
+                return Math.min((i + 1) * mBucketWidth, mMax);
+            }
+        }
+        return mMax;
+    }
+
+    public void reset() {
+        for (int i = 0; i < mCounts.length; i++) {
+            mCounts[i] = 0;
+        }
+        mCount = 0;
+        mMax = 0;
+    }
+}
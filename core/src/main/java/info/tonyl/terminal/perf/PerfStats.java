@@ -0,0 +1,172 @@
+package info.tonyl.terminal.perf;
+
+import info.tonyl.terminal.text.CharText;
+
+/**
+ * How long frames take to draw, and how late the once-a-second tick fires.
+ */
+public class PerfStats {
+    // Draw times are kept in microseconds, in 0.1ms buckets up to 50ms
+    private static final long DRAW_BUCKET_US = 100;
+    private static final int DRAW_BUCKETS = 500;
+
+    // Tick lateness is kept in milliseconds, in 5ms buckets up to a full second
+    private static final long LATENESS_BUCKET_MS = 5;
+    private static final int LATENESS_BUCKETS = 200;
+
+    // How many interactive frames to measure each draw path for before picking the cheaper one
+    public static final int DRAW_PATH_TRIAL_FRAMES = 200;
+
+    private final Histogram mDrawTimes = new Histogram(DRAW_BUCKET_US, DRAW_BUCKETS);
+    private final Histogram mTickLateness = new Histogram(LATENESS_BUCKET_MS, LATENESS_BUCKETS);
+    // CPU time of interactive frames on a hardware canvas, by which way they were drawn
+    private final Histogram mRenderNodeCpuTimes = new Histogram(DRAW_BUCKET_US, DRAW_BUCKETS);
+    private final Histogram mSoftwareCpuTimes = new Histogram(DRAW_BUCKET_US, DRAW_BUCKETS);
+
+    private long mComplicationUpdates;
+    private long mComplicationRedraws;
+    private long mAvoidedWakeups;
+    private long mTextCacheHits;
+    private long mTextCacheMisses;
+    private long mTimeToFirstFrame = -1;
+
+    public void recordDraw(long nanos) {
+        mDrawTimes.record(nanos / 1000);
+    }
+
+    /**
+     * Records the CPU time of an interactive frame drawn on a hardware canvas, either by replaying
+     * render nodes or from the software static layer.
+     */
+    public void recordInteractiveCpu(boolean renderNodes, long nanos) {
+        (renderNodes ? mRenderNodeCpuTimes : mSoftwareCpuTimes).record(nanos / 1000);
+    }
+
+    /**
+     * Whether the next interactive frame on a hardware canvas should be drawn with render nodes.
+     * Until both ways have been measured for DRAW_PATH_TRIAL_FRAMES frames, this takes turns
+     * between them; after that it's whichever has the lower median CPU time (software on a tie).
+     */
+    public boolean shouldUseRenderNodes() {
+        long renderNodeFrames = mRenderNodeCpuTimes.getCount();
+        long softwareFrames = mSoftwareCpuTimes.getCount();
+        if (renderNodeFrames < DRAW_PATH_TRIAL_FRAMES || softwareFrames < DRAW_PATH_TRIAL_FRAMES) {
+            return renderNodeFrames < softwareFrames;
+        }
+        return mRenderNodeCpuTimes.getPercentile(50) < mSoftwareCpuTimes.getPercentile(50);
+    }
+
+    public void recordTickLateness(long millis) {
+        mTickLateness.record(millis);
+    }
+
+    public void recordComplicationUpdate() {
+        mComplicationUpdates++;
+    }
+
+    /**
+     * Call when a frame had to be drawn just for complication updates (rather than them being
+     * drawn along with a frame that was happening anyway).
+     */
+    public void recordComplicationRedraw() {
+        mComplicationRedraws++;
+    }
+
+    public long getComplicationUpdates() {
+        return mComplicationUpdates;
+    }
+
+    /**
+     * How many redraws were avoided, compared to redrawing for every update.
+     */
+    public long getSavedRedraws() {
+        return mComplicationUpdates - mComplicationRedraws;
+    }
+
+    /**
+     * Sets how many wakeups the tick scheduler avoided in the last hour.
+     */
+    public void setAvoidedWakeups(long avoidedWakeups) {
+        mAvoidedWakeups = avoidedWakeups;
+    }
+
+    public long getAvoidedWakeups() {
+        return mAvoidedWakeups;
+    }
+
+    /**
+     * Sets how many values the renderer's measured text cache already had, and how many it had to
+     * measure.
+     */
+    public void setTextCacheStats(long hits, long misses) {
+        mTextCacheHits = hits;
+        mTextCacheMisses = misses;
+    }
+
+    public long getTextCacheHits() {
+        return mTextCacheHits;
+    }
+
+    public long getTextCacheMisses() {
+        return mTextCacheMisses;
+    }
+
+    /**
+     * Sets how long the most recently created engine took to draw its first frame.
+     */
+    public void setTimeToFirstFrame(long millis) {
+        mTimeToFirstFrame = millis;
+    }
+
+    /**
+     * Gets how long the most recently created engine took to draw its first frame, or -1 if it
+     * hasn't yet.
+     */
+    public long getTimeToFirstFrame() {
+        return mTimeToFirstFrame;
+    }
+
+    public Histogram getDrawTimes() {
+        return mDrawTimes;
+    }
+
+    public Histogram getTickLateness() {
+        return mTickLateness;
+    }
+
+    public Histogram getRenderNodeCpuTimes() {
+        return mRenderNodeCpuTimes;
+    }
+
+    public Histogram getSoftwareCpuTimes() {
+        return mSoftwareCpuTimes;
+    }
+
+    /**
+     * Writes the draw time p50/p95/p99/max in milliseconds (like "1.2/3.4/5.6/9.9") without
+     * allocating, so it can be drawn on the face.
+     */
+    public CharText formatDrawTimes(CharText out) {
+        out.clear();
+        appendMillis(out, mDrawTimes.getPercentile(50)).append('/');
+        appendMillis(out, mDrawTimes.getPercentile(95)).append('/');
+        appendMillis(out, mDrawTimes.getPercentile(99)).append('/');
+        appendMillis(out, mDrawTimes.getMax());
+        return out;
+    }
+
+    private static CharText appendMillis(CharText out, long micros) {
+        long tenths = (micros + 50) / 100;
+        return out.append(tenths / 10).append('.').append((char) ('0' + tenths % 10));
+    }
+
+    public void reset() {
+        mDrawTimes.reset();
+        mTickLateness.reset();
+        mRenderNodeCpuTimes.reset();
+        mSoftwareCpuTimes.reset();
+        mComplicationUpdates = 0;
+        mComplicationRedraws = 0;
+        mAvoidedWakeups = 0;
+    }
+}
@@ -0,0 +1,163 @@
+package info.tonyl.terminal.perf;
+
+/**
+ * Counts the work the face does, hour by hour, for the last day: how often the tick woke it up,
+ * how many frames it drew in each mode and how much CPU time they took, and how many complication
+ * updates each slot pushed. Everything is kept in fixed arrays, with one slot per hour that gets reused
+ * once it's a day old, so counting is just a few increments.
+ */
+public class PowerCounters {
+    public static final int HOURS = 24;
+    private static final long HOUR_MS = 60 * 60 * 1000;
+    private static final long NO_HOUR = -1;
+
+    private final int mSlots;
+
+    // Indexed by hour % HOURS, and hourStarts says which hour each one is actually counting
+    private final long[] mHourStarts = new long[HOURS];
+    private final long[] mWakeups = new long[HOURS];
+    private final long[] mInteractiveDraws = new long[HOURS];
+    private final long[] mAmbientDraws = new long[HOURS];
+    private final long[] mInteractiveDrawCpuNanos = new long[HOURS];
+    private final long[] mAmbientDrawCpuNanos = new long[HOURS];
+    private final long[] mPushes;
+
+    /**
+     * Slots are the complication ids, from 0 up to (but not including) the given count.
+     */
+    public PowerCounters(int slots) {
+        mSlots = slots;
+        mPushes = new long[HOURS * slots];
+        for (int i = 0; i < HOURS; i++) {
+            mHourStarts[i] = NO_HOUR;
+        }
+    }
+
+    /**
+     * Gets the index for the hour the time is in, clearing it out first if it was last used for an
+     * older hour.
+     */
+    private int indexFor(long now) {
+        long hour = now / HOUR_MS;
+        int index = (int) (hour % HOURS);
+        long hourStart = hour * HOUR_MS;
+        if (mHourStarts[index] != hourStart) {
+            mHourStarts[index] = hourStart;
+            mWakeups[index] = 0;
+            mInteractiveDraws[index] = 0;
+            mAmbientDraws[index] = 0;
+            mInteractiveDrawCpuNanos[index] = 0;
+            mAmbientDrawCpuNanos[index] = 0;
+            for (int slot = 0; slot < mSlots; slot++) {
+                mPushes[index * mSlots + slot] = 0;
+            }
+        }
+        return index;
+    }
+
+    public void recordWakeup(long now) {
+        mWakeups[indexFor(now)]++;
+    }
+
+    /**
+     * cpuNanos is the CPU time the drawing thread spent on the frame. Wall-clock time would also
+     * count time spent waiting or preempted, which doesn't use any power.
+     */
+    public void recordDraw(long now, boolean ambient, long cpuNanos) {
+        int index = indexFor(now);
+        if (ambient) {
+            mAmbientDraws[index]++;
+            mAmbientDrawCpuNanos[index] += cpuNanos;
+        } else {
+            mInteractiveDraws[index]++;
+            mInteractiveDrawCpuNanos[index] += cpuNanos;
+        }
+    }
+
+    public void recordPush(long now, int slot) {
+        if (slot >= 0 && slot < mSlots) {
+            mPushes[indexFor(now) * mSlots + slot]++;
+        }
+    }
+
+    public int getSlotCount() {
+        return mSlots;
+    }
+
+    /**
+     * Gets the index of the given number of hours before the one the time is in, or -1 if nothing
+     * was counted in that hour. The index is for the getters below.
+     */
+    public int getHourIndex(long now, int hoursAgo) {
+        long hour = now / HOUR_MS - hoursAgo;
+        int index = (int) (hour % HOURS);
+        return mHourStarts[index] == hour * HOUR_MS ? index : -1;
+    }
+
+    public long getHourStart(int index) {
+        return mHourStarts[index];
+    }
+
+    public long getWakeups(int index) {
+        return mWakeups[index];
+    }
+
+    public long getInteractiveDraws(int index) {
+        return mInteractiveDraws[index];
+    }
+
+    public long getAmbientDraws(int index) {
+        return mAmbientDraws[index];
+    }
+
+    public long getInteractiveDrawCpuNanos(int index) {
+        return mInteractiveDrawCpuNanos[index];
+    }
+
+    public long getAmbientDrawCpuNanos(int index) {
+        return mAmbientDrawCpuNanos[index];
+    }
+
+    public long getPushes(int index, int slot) {
+        return mPushes[index * mSlots + slot];
+    }
+
+    public long getTotalWakeups(long now) {
+        return sumLastDay(now, mWakeups, 1, 0);
+    }
+
+    public long getTotalInteractiveDraws(long now) {
+        return sumLastDay(now, mInteractiveDraws, 1, 0);
+    }
+
+    public long getTotalAmbientDraws(long now) {
+        return sumLastDay(now, mAmbientDraws, 1, 0);
+    }
+
+    public long getTotalInteractiveDrawCpuNanos(long now) {
+        return sumLastDay(now, mInteractiveDrawCpuNanos, 1, 0);
+    }
+
+    public long getTotalAmbientDrawCpuNanos(long now) {
+        return sumLastDay(now, mAmbientDrawCpuNanos, 1, 0);
+    }
+
+    public long getTotalPushes(long now, int slot) {
+        return sumLastDay(now, mPushes, mSlots, slot);
+    }
+
+    /**
+     * Adds up a counter over every hour in the last day that's still being kept. Counters for
+     * index i are at values[i * stride + offset].
+     */
+    private long sumLastDay(long now, long[] values, int stride, int offset) {
+        long total = 0;
+        for (int hoursAgo = 0; hoursAgo < HOURS; hoursAgo++) {
+            int index = getHourIndex(now, hoursAgo);
+            if (index >= 0) {
+                total += values[index * stride + offset];
+            }
+        }
+        return total;
+    }
+}
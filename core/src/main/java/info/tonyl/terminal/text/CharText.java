@@ -0,0 +1,112 @@
+package info.tonyl.terminal.text;
+
+/**
+ * A fixed-size, reusable character buffer. Anything drawn every frame gets written into one of
+ * these instead of a String, so the draw path never has to allocate.
+ * <p>
+ * Appends past the capacity are silently dropped, so size these for the longest text they will
+ * ever hold.
+ */
+public class CharText implements CharSequence {
+    private final char[] mChars;
+    private int mLength;
+
+    public CharText(int capacity) {
+        mChars = new char[capacity];
+    }
+
+    public char[] getChars() {
+        return mChars;
+    }
+
+    @Override
+    public int length() {
+        return mLength;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return mChars[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(mChars, start, end - start);
+    }
+
+    public CharText clear() {
+        mLength = 0;
+        return this;
+    }
+
+    public CharText append(char c) {
+        if (mLength < mChars.length) {
+            mChars[mLength++] = c;
+        }
+        return this;
+    }
+
+    public CharText append(CharSequence s) {
+        for (int i = 0; i < s.length(); i++) {
+            append(s.charAt(i));
+        }
+        return this;
+    }
+
+    public CharText append(CharSequence s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            append(s.charAt(i));
+        }
+        return this;
+    }
+
+    public CharText append(char[] chars, int start, int count) {
+        for (int i = start; i < start + count; i++) {
+            append(chars[i]);
+        }
+        return this;
+    }
+
+    /**
+     * Appends the number in plain ASCII digits, without going through a String.
+     */
+    public CharText append(long value) {
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+        long divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        while (divisor > 0) {
+            append((char) ('0' + (value / divisor) % 10));
+            divisor /= 10;
+        }
+        return this;
+    }
+
+    public CharText set(CharSequence s) {
+        return clear().append(s);
+    }
+
+    /**
+     * Returns true if this has the same characters as the given text, without making a String.
+     */
+    public boolean contentEquals(CharSequence s) {
+        if (s.length() != mLength) {
+            return false;
+        }
+        for (int i = 0; i < mLength; i++) {
+            if (mChars[i] != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return new String(mChars, 0, mLength);
+    }
+}
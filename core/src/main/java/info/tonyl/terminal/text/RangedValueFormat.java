@@ -0,0 +1,47 @@
+package info.tonyl.terminal.text;
+
+import java.util.Locale;
+
+/**
+ * Draws a ranged value as a bar followed by the percentage, like "[######....] 60%". Every
+ * percentage from 0 to 100 is rendered up front, so formatting a value is just a table lookup.
+ */
+public class RangedValueFormat {
+    public static final int DEFAULT_WIDTH = 10;
+    public static final char DEFAULT_FILL = '#';
+    public static final char DEFAULT_EMPTY = '.';
+
+    private static final int MAX_PERCENT = 100;
+
+    private final char[][] mRenderings = new char[MAX_PERCENT + 1][];
+
+    public RangedValueFormat(Locale locale) {
+        this(DEFAULT_WIDTH, DEFAULT_FILL, DEFAULT_EMPTY, locale);
+    }
+
+    public RangedValueFormat(int width, char fill, char empty, Locale locale) {
+        StringBuilder sb = new StringBuilder();
+        for (int percent = 0; percent <= MAX_PERCENT; percent++) {
+            int length = Math.round(percent * width / (float) MAX_PERCENT);
+            sb.setLength(0);
+            sb.append('[');
+            for (int i = 0; i < width; i++) {
+                sb.append(i < length ? fill : empty);
+            }
+            sb.append("] ");
+            sb.append(String.format(locale, "%02d", percent));
+            sb.append('%');
+            mRenderings[percent] = sb.toString().toCharArray();
+        }
+    }
+
+    /**
+     * Writes the value, as a percentage of the way from min to max.
+     */
+    public CharText format(float value, float min, float max, CharText out) {
+        float percent = max > min ? (value - min) / (max - min) * MAX_PERCENT : value;
+        int index = Math.max(0, Math.min(MAX_PERCENT, Math.round(percent)));
+        char[] rendering = mRenderings[index];
+        return out.clear().append(rendering, 0, rendering.length);
+    }
+}
@@ -0,0 +1,135 @@
+package info.tonyl.terminal.text;
+
+import info.tonyl.terminal.constants.ComplicationDataConstants;
+import info.tonyl.terminal.constants.TemperatureConstants;
+
+/**
+ * Tidies up the temperature from a weather provider, like "72 ℉" into "72°", and optionally
+ * converts it between Fahrenheit and Celsius. Providers tend to push the same text over and over,
+ * so the last result is cached and only redone when the text actually changes.
+ */
+public class TemperatureFormat {
+    private static final int RESULT_CAPACITY = 32;
+
+    private String mUnit = TemperatureConstants.UNIT_AS_PROVIDED;
+    private String mLastRaw;
+    // Until there's a temperature to show, there's nothing to convert either
+    private final CharText mResult = new CharText(RESULT_CAPACITY).set(ComplicationDataConstants.NO_INFO);
+
+    /**
+     * Sets the unit to show temperatures in (one of the TemperatureConstants units), and redoes
+     * the last result in the new unit.
+     */
+    public CharText setUnit(String unit) {
+        mUnit = unit;
+        if (mLastRaw != null) {
+            convert(mLastRaw);
+        }
+        return mResult;
+    }
+
+    public CharText format(String raw) {
+        if (!raw.equals(mLastRaw)) {
+            mLastRaw = raw;
+            convert(raw);
+        }
+        return mResult;
+    }
+
+    private void convert(String raw) {
+        // Find the unit, either as one character or as a degree sign and a letter
+        int unitStart = -1;
+        int unitEnd = -1;
+        boolean fahrenheit = false;
+        for (int i = 0; i < raw.length() && unitStart < 0; i++) {
+            char c = raw.charAt(i);
+            if (c == TemperatureConstants.FAHRENHEIT_SYMBOL || c == TemperatureConstants.CELSIUS_SYMBOL) {
+                unitStart = i;
+                unitEnd = i + 1;
+                fahrenheit = c == TemperatureConstants.FAHRENHEIT_SYMBOL;
+            } else if (c == TemperatureConstants.DEGREE_SYMBOL && i + 1 < raw.length()
+                    && (raw.charAt(i + 1) == 'F' || raw.charAt(i + 1) == 'C')) {
+                unitStart = i;
+                unitEnd = i + 2;
+                fahrenheit = raw.charAt(i + 1) == 'F';
+            }
+        }
+        if (unitStart < 0) {
+            // Not something we know how to read, so leave it alone
+            mResult.set(raw);
+            return;
+        }
+
+        // The number is right before the unit (maybe with spaces in between)
+        int numberEnd = unitStart;
+        while (numberEnd > 0 && raw.charAt(numberEnd - 1) == ' ') {
+            numberEnd--;
+        }
+        int numberStart = numberEnd;
+        while (numberStart > 0 && isNumberChar(raw.charAt(numberStart - 1))) {
+            numberStart--;
+        }
+        if (numberStart > 0 && isMinus(raw.charAt(numberStart - 1))) {
+            numberStart--;
+        }
+
+        mResult.clear().append(raw, 0, numberStart);
+
+        boolean toFahrenheit = TemperatureConstants.UNIT_FAHRENHEIT.equals(mUnit);
+        boolean toCelsius = TemperatureConstants.UNIT_CELSIUS.equals(mUnit);
+        if (numberStart < numberEnd && ((fahrenheit && toCelsius) || (!fahrenheit && toFahrenheit))) {
+            double value = parse(raw, numberStart, numberEnd);
+            if (Double.isNaN(value)) {
+                mResult.append(raw, numberStart, numberEnd);
+            } else {
+                double converted = fahrenheit ? (value - 32) * 5 / 9 : value * 9 / 5 + 32;
+                mResult.append(Math.round(converted));
+            }
+        } else {
+            mResult.append(raw, numberStart, numberEnd);
+        }
+
+        mResult.append(TemperatureConstants.TEMPERATURE_REPLACEMENT);
+        mResult.append(raw, unitEnd, raw.length());
+    }
+
+    private static boolean isNumberChar(char c) {
+        return Character.isDigit(c) || c == '.' || c == ',';
+    }
+
+    private static boolean isMinus(char c) {
+        return c == '-' || c == '−';
+    }
+
+    /**
+     * Reads the number between start and end, or returns NaN if it isn't one.
+     */
+    private static double parse(String raw, int start, int end) {
+        double value = 0;
+        double scale = 0;
+        boolean negative = false;
+        for (int i = start; i < end; i++) {
+            char c = raw.charAt(i);
+            if (isMinus(c)) {
+                negative = true;
+            } else if (c == '.' || c == ',') {
+                if (scale != 0) {
+                    return Double.NaN;
+                }
+                scale = 1;
+            } else {
+                int digit = Character.digit(c, 10);
+                if (digit < 0) {
+                    return Double.NaN;
+                }
+                if (scale != 0) {
+                    scale /= 10;
+                    value += digit * scale;
+                } else {
+                    value = value * 10 + digit;
+                }
+            }
+        }
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,120 @@
+package info.tonyl.terminal.text;
+
+import java.text.DateFormatSymbols;
+import java.text.DecimalFormatSymbols;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Formats the time like SimpleDateFormat("hh:mm:ss a z") (or "HH:mm:ss z" in 24 hour mode) would,
+ * but without a Calendar. Everything up to the seconds is cached for the whole minute, so most
+ * calls only have to work out the seconds and copy two digits out of a table.
+ */
+public class TimeFormatter {
+    private static final long SECOND_MS = 1000;
+    private static final long MINUTE_MS = 60 * SECOND_MS;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+    private static final long DAY_MS = 24 * HOUR_MS;
+
+    private static final String TZ_FORMAT_STRING = " z";
+
+    // Two digits for every value from 00 to 59, in the locale's digits (the seconds are always
+    // ASCII, to match how the face has always drawn them)
+    private final char[] mLocaleDigits = new char[120];
+    private final char[] mAsciiDigits = new char[120];
+
+    private final TimeZone mZone;
+    private final boolean m24Hour;
+    private final String mAmString;
+    private final String mPmString;
+    private final SimpleDateFormat mTimezoneFormat;
+
+    // The minute that the cached text below is for
+    private long mMinuteStart = Long.MAX_VALUE;
+    private long mMinuteEnd = Long.MIN_VALUE;
+
+    // The zone offset, and the range of time it's good for (until the next DST switch)
+    private long mOffsetStart = Long.MAX_VALUE;
+    private long mOffsetEnd = Long.MIN_VALUE;
+    private int mZoneOffset;
+    private String mTimezoneString;
+    private final CharText mHourMinute = new CharText(8);
+    private final CharText mSuffix = new CharText(48);
+
+    public TimeFormatter(TimeZone zone, Locale locale, boolean use24Hour) {
+        mZone = zone;
+        m24Hour = use24Hour;
+
+        char zero = DecimalFormatSymbols.getInstance(locale).getZeroDigit();
+        for (int i = 0; i < 60; i++) {
+            mLocaleDigits[i * 2] = (char) (zero + i / 10);
+            mLocaleDigits[i * 2 + 1] = (char) (zero + i % 10);
+            mAsciiDigits[i * 2] = (char) ('0' + i / 10);
+            mAsciiDigits[i * 2 + 1] = (char) ('0' + i % 10);
+        }
+
+        String[] amPm = DateFormatSymbols.getInstance(locale).getAmPmStrings();
+        mAmString = " " + amPm[0];
+        mPmString = " " + amPm[1];
+
+        mTimezoneFormat = new SimpleDateFormat(TZ_FORMAT_STRING, locale);
+        mTimezoneFormat.setTimeZone(zone);
+    }
+
+    /**
+     * Writes the time into the given buffer. Without seconds, they're replaced with dashes.
+     */
+    public CharText format(long now, boolean showSeconds, CharText out) {
+        if (now < mMinuteStart || now >= mMinuteEnd) {
+            updateMinute(now);
+        }
+
+        out.clear();
+        out.append(mHourMinute.getChars(), 0, mHourMinute.length());
+        if (showSeconds) {
+            int second = (int) ((now - mMinuteStart) / SECOND_MS);
+            out.append(mAsciiDigits, second * 2, 2);
+        } else {
+            out.append("--");
+        }
+        out.append(mSuffix.getChars(), 0, mSuffix.length());
+        return out;
+    }
+
+    private void updateMinute(long now) {
+        // Only need a new offset and zone name if we switched in or out of DST
+        if (now < mOffsetStart || now >= mOffsetEnd) {
+            mZoneOffset = mZone.getOffset(now);
+            mOffsetStart = now;
+            mOffsetEnd = ZoneTransitions.next(mZone, now);
+            mTimezoneString = mTimezoneFormat.format(new Date(now));
+        }
+
+        long local = now + mZoneOffset;
+        mMinuteStart = now - Math.floorMod(local, MINUTE_MS);
+        // A DST switch can end the minute early
+        mMinuteEnd = Math.min(mMinuteStart + MINUTE_MS, mOffsetEnd);
+
+        int minuteOfDay = (int) (Math.floorMod(local, DAY_MS) / MINUTE_MS);
+        int hour = minuteOfDay / 60;
+        int minute = minuteOfDay % 60;
+
+        int displayHour = hour;
+        if (!m24Hour) {
+            displayHour = hour % 12 == 0 ? 12 : hour % 12;
+        }
+        mHourMinute.clear()
+                .append(mLocaleDigits, displayHour * 2, 2)
+                .append(':')
+                .append(mLocaleDigits, minute * 2, 2)
+                .append(':');
+
+        mSuffix.clear();
+        if (!m24Hour) {
+            mSuffix.append(hour < 12 ? mAmString : mPmString);
+        }
+        mSuffix.append(mTimezoneString);
+    }
+}
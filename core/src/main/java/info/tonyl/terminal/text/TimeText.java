@@ -0,0 +1,92 @@
+package info.tonyl.terminal.text;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Builds the [TIME] and [DATE] values into reusable buffers. The time comes from a TimeFormatter,
+ * and the date is only regenerated when the day (or the timezone) changes.
+ */
+public class TimeText {
+    private static final String D_FORMAT_STRING = "yyyy-MM-dd EEE";
+
+    // Generous enough for long localized AM/PM markers and timezone names
+    private static final int TIME_CAPACITY = 64;
+    private static final int DATE_CAPACITY = 64;
+
+    private TimeFormatter mTimeFormatter;
+    private SimpleDateFormat mDateFormat;
+    private Calendar mCalendar;
+    private boolean mZoneChanged = true;
+    private boolean m24Hour;
+
+    // The day that the cached date is for
+    private long mDayStart = Long.MAX_VALUE;
+    private long mDayEnd = Long.MIN_VALUE;
+
+    private final CharText mTime = new CharText(TIME_CAPACITY);
+    private final CharText mDate = new CharText(DATE_CAPACITY);
+
+    /**
+     * Call when the system timezone, locale or clock may have changed. Checking TimeZone.getDefault()
+     * every frame would clone the zone each time, so instead the next frame picks it up from here.
+     */
+    public void onTimezoneChanged() {
+        mZoneChanged = true;
+    }
+
+    public void set24Hour(boolean use24Hour) {
+        if (use24Hour != m24Hour) {
+            m24Hour = use24Hour;
+            mZoneChanged = true;
+        }
+    }
+
+    /**
+     * Makes the time. Without seconds (like in ambient mode) they're replaced with dashes.
+     */
+    public CharText makeTime(long now, boolean hideSeconds) {
+        update();
+        return mTimeFormatter.format(now, !hideSeconds, mTime);
+    }
+
+    public CharText makeDate(long now) {
+        update();
+
+        if (now < mDayStart || now >= mDayEnd) {
+            mCalendar.setTimeInMillis(now);
+            mDate.set(mDateFormat.format(mCalendar.getTime()));
+
+            // Work out when this day started and when it ends
+            mCalendar.set(Calendar.HOUR_OF_DAY, 0);
+            mCalendar.set(Calendar.MINUTE, 0);
+            mCalendar.set(Calendar.SECOND, 0);
+            mCalendar.set(Calendar.MILLISECOND, 0);
+            mDayStart = mCalendar.getTimeInMillis();
+            mCalendar.add(Calendar.DAY_OF_MONTH, 1);
+            mDayEnd = mCalendar.getTimeInMillis();
+        }
+
+        return mDate;
+    }
+
+    private void update() {
+        if (mZoneChanged) {
+            mZoneChanged = false;
+
+            // Update the format objects (because the locale probably changed)
+            Locale locale = Locale.getDefault();
+            TimeZone zone = TimeZone.getDefault();
+            mTimeFormatter = new TimeFormatter(zone, locale, m24Hour);
+            mDateFormat = new SimpleDateFormat(D_FORMAT_STRING, locale);
+            mDateFormat.setTimeZone(zone);
+            mCalendar = Calendar.getInstance(zone, locale);
+
+            // Force the date to be regenerated
+            mDayStart = Long.MAX_VALUE;
+            mDayEnd = Long.MIN_VALUE;
+        }
+    }
+}
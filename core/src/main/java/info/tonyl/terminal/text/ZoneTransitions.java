@@ -0,0 +1,53 @@
+package info.tonyl.terminal.text;
+
+import java.util.TimeZone;
+
+/**
+ * Finds when a timezone's offset next changes (usually a DST switch), so the offset only has to be
+ * looked up again once that instant has passed.
+ */
+public class ZoneTransitions {
+    private ZoneTransitions() {
+        // Hiding constructor
+    }
+
+    private static final long STEP_MS = 24 * 60 * 60 * 1000L;
+
+    // How far ahead to look. Zones without any transition in this window get checked again once
+    // it's over, in case the rules change later on.
+    private static final long HORIZON_MS = 400 * STEP_MS;
+
+    /**
+     * Gets the first instant after from where the zone's offset is different from its offset at
+     * from. If there isn't one within the horizon, the end of the horizon is returned instead.
+     */
+    public static long next(TimeZone zone, long from) {
+        int offset = zone.getOffset(from);
+        long end = from + HORIZON_MS;
+
+        // Walk forward a day at a time until the offset changes...
+        long low = from;
+        long high = from;
+        while (high < end) {
+            low = high;
+            high = Math.min(high + STEP_MS, end);
+            if (zone.getOffset(high) != offset) {
+                break;
+            }
+        }
+        if (zone.getOffset(high) == offset) {
+            return end;
+        }
+
+        // ...then narrow it down to the exact millisecond
+        while (high - low > 1) {
+            long mid = low + (high - low) / 2;
+            if (zone.getOffset(mid) == offset) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return high;
+    }
+}
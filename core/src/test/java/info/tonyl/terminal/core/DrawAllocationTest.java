@@ -0,0 +1,146 @@
+package info.tonyl.terminal.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Checks that drawing a frame doesn't allocate, since anything allocated on every frame adds up to
+ * garbage collections while the face is on screen. The one exception is the date, which is
+ * formatted again once a day.
+ */
+public class DrawAllocationTest {
+    private static final long SECOND_MS = 1000;
+    private static final long DAY_MS = 24 * 60 * 60 * SECOND_MS;
+
+    // 2023-11-14 00:00:01 UTC
+    private static final long START = 1699920001000L;
+
+    private static final int WARMUP_FRAMES = 20000;
+
+    // JIT activity while measuring can occasionally show up as a few bytes, so each measurement is
+    // repeated and the least taken. Anything allocated per frame shows up in all of them
+    private static final int MEASUREMENTS = 3;
+
+    // What reformatting the date once is allowed to allocate (it's a few hundred bytes)
+    private static final long DATE_BYTES = 2048;
+
+    private final TimeZone mDefaultZone = TimeZone.getDefault();
+    private final Locale mDefaultLocale = Locale.getDefault();
+
+    private final com.sun.management.ThreadMXBean mThreads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final long mThreadId = Thread.currentThread().getId();
+
+    private final TextSink mSink = new TextSink() {
+        @Override
+        public void drawBackground(int color) {
+        }
+
+        @Override
+        public void drawText(char[] text, int start, int count, float x, float y, int style) {
+        }
+    };
+
+    private long mNow;
+    private TerminalRenderer mRenderer;
+
+    @Before
+    public void setUp() {
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        Locale.setDefault(Locale.US);
+
+        mRenderer = new TerminalRenderer(new TimeSource() {
+            @Override
+            public long currentTimeMillis() {
+                return mNow;
+            }
+        });
+        mRenderer.layout(480, 480, new TextMeasurer() {
+            @Override
+            public float measureText(String text) {
+                return text.length() * 18;
+            }
+
+            @Override
+            public float getLineSpacing() {
+                return 38;
+            }
+        });
+        mRenderer.setUsernameMessages("tonyl@watch:~ $ now", "tonyl@watch:~ $ ");
+        mRenderer.setRangedValue(TerminalRenderer.BATTERY_LINE, 60, 0, 100);
+        mRenderer.setText(TerminalRenderer.STEP_LINE, "1234");
+        mRenderer.setTemperature("72 ℉");
+
+        // Get everything loaded and compiled, through a day change, before measuring
+        mNow = START - DAY_MS;
+        drawFrames(WARMUP_FRAMES, 5 * SECOND_MS, false);
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(mDefaultZone);
+        Locale.setDefault(mDefaultLocale);
+    }
+
+    @Test
+    public void interactiveFramesWithinADayDontAllocate() {
+        // A frame a second from just after midnight to just before the next one, so every minute and
+        // hour changes but the day doesn't
+        mNow = START;
+        assertEquals(0, measure(86000, SECOND_MS, false));
+    }
+
+    @Test
+    public void ambientFramesWithinADayDontAllocate() {
+        mNow = START;
+        assertEquals(0, measure(1439, 60 * SECOND_MS, true));
+    }
+
+    @Test
+    public void dayChangesOnlyAllocateForTheDate() {
+        // A frame every 10 seconds for a little over 10 days
+        mNow = START;
+        int days = 10;
+        long bytes = measure(days * 8640 + 100, 10 * SECOND_MS, false);
+        assertTrue(bytes + " bytes allocated over " + days + " day changes",
+                bytes <= days * DATE_BYTES);
+    }
+
+    /**
+     * Draws frames with the time moving on by the step each frame, starting from the current time
+     * each measurement, and returns the least bytes allocated while doing it.
+     */
+    private long measure(int frames, long stepMs, boolean ambient) {
+        long start = mNow;
+        long least = Long.MAX_VALUE;
+        for (int i = 0; i < MEASUREMENTS; i++) {
+            mNow = start;
+            long overhead = allocatedBytes();
+            overhead = allocatedBytes() - overhead;
+
+            long before = allocatedBytes();
+            drawFrames(frames, stepMs, ambient);
+            least = Math.min(least, allocatedBytes() - before - overhead);
+        }
+        return least;
+    }
+
+    private void drawFrames(int frames, long stepMs, boolean ambient) {
+        for (int i = 0; i < frames; i++) {
+            mNow += stepMs;
+            mRenderer.drawValues(mSink, ambient);
+        }
+    }
+
+    private long allocatedBytes() {
+        return mThreads.getThreadAllocatedBytes(mThreadId);
+    }
+}
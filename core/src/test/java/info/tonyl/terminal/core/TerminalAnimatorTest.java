@@ -0,0 +1,50 @@
+package info.tonyl.terminal.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TerminalAnimatorTest {
+    private final TerminalAnimator mAnimator = new TerminalAnimator();
+
+    @Test
+    public void drawsAtTheFrameRateWhileTyping() {
+        mAnimator.start(0);
+        assertEquals(TerminalAnimator.FRAME_INTERVAL_MS, mAnimator.getFrameDelay(0));
+        assertEquals(TerminalAnimator.FRAME_INTERVAL_MS, mAnimator.getFrameDelay(590));
+    }
+
+    @Test
+    public void skipsFramesWhileTypingIfTheyTakeTooLong() {
+        mAnimator.start(0);
+        mAnimator.onFrameDrawn(TerminalAnimator.FRAME_INTERVAL_MS * 1_000_000);
+        assertEquals(2 * TerminalAnimator.FRAME_INTERVAL_MS, mAnimator.getFrameDelay(100));
+    }
+
+    @Test
+    public void onlyDrawsWhenTheCursorBlinksAfterTyping() {
+        mAnimator.start(0);
+        // Typing takes 600ms, then the cursor toggles every 500ms
+        assertEquals(500, mAnimator.getFrameDelay(600));
+        assertEquals(1, mAnimator.getFrameDelay(1099));
+        assertEquals(500, mAnimator.getFrameDelay(1100));
+
+        // Going from one delay to the next lands on every toggle, and the cursor changes each time
+        long now = 600;
+        boolean cursorOn = mAnimator.isCursorOn(now);
+        int frames = 0;
+        while (mAnimator.isRunning(now)) {
+            now += mAnimator.getFrameDelay(now);
+            frames++;
+            if (mAnimator.isRunning(now)) {
+                assertTrue(cursorOn != mAnimator.isCursorOn(now));
+                cursorOn = mAnimator.isCursorOn(now);
+            }
+        }
+        assertEquals(4, frames);
+        assertTrue(mAnimator.isCursorOn(now));
+        assertFalse(mAnimator.isRunning(now));
+    }
+}
@@ -0,0 +1,92 @@
+package info.tonyl.terminal.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TerminalRendererTest {
+    private static final int SIZE = 480;
+    private static final float CHAR_WIDTH = 18;
+
+    private final List<String> mDrawn = new ArrayList<>();
+
+    private final TextSink mSink = new TextSink() {
+        @Override
+        public void drawBackground(int color) {
+        }
+
+        @Override
+        public void drawText(char[] text, int start, int count, float x, float y, int style) {
+            mDrawn.add(new String(text, start, count));
+        }
+    };
+
+    private final TerminalRenderer mRenderer = new TerminalRenderer(new TimeSource() {
+        @Override
+        public long currentTimeMillis() {
+            return 0;
+        }
+    });
+
+    @Before
+    public void setUp() {
+        mRenderer.layout(SIZE, SIZE, new TextMeasurer() {
+            @Override
+            public float measureText(String text) {
+                return text.length() * CHAR_WIDTH;
+            }
+
+            @Override
+            public float getLineSpacing() {
+                return 38;
+            }
+        });
+    }
+
+    @Test
+    public void valueLinesAddedAfterLayoutAreDrawn() {
+        int id = mRenderer.addValueLine("[HR] ", TerminalRenderer.BASE_STYLE);
+        mRenderer.setText(id, "72 bpm");
+
+        mRenderer.drawStatic(mSink);
+        assertTrue(mDrawn.contains("[HR] "));
+
+        mDrawn.clear();
+        mRenderer.drawValues(mSink, true);
+        assertTrue(mDrawn.contains("72 bpm"));
+    }
+
+    @Test
+    public void valueLinesAddedAfterLayoutAreCutToFit() {
+        int id = mRenderer.addValueLine("[HR] ", TerminalRenderer.BASE_STYLE);
+        String text = "a value that is much too long for the screen";
+        assertTrue(mRenderer.setText(id, text));
+
+        mRenderer.drawValues(mSink, true);
+        String shown = null;
+        for (String drawn : mDrawn) {
+            if (drawn.endsWith(MeasuredTextCache.ELLIPSIS)) {
+                shown = drawn;
+            }
+        }
+        assertTrue(shown != null && text.startsWith(shown.substring(0, shown.length() - 1)));
+    }
+
+    @Test
+    public void everyValueLineGetsItsOwnId() {
+        int first = mRenderer.addValueLine("[HR] ", TerminalRenderer.BASE_STYLE);
+        int second = mRenderer.addValueLine("[HR2] ", TerminalRenderer.BASE_STYLE);
+        assertEquals(TerminalRenderer.TEMP_LINE + 1, first);
+        assertEquals(first + 1, second);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownValueLinesAreRejected() {
+        mRenderer.setText(TerminalRenderer.TEMP_LINE + 1, "1234");
+    }
+}
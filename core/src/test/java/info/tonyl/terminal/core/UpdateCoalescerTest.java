@@ -0,0 +1,54 @@
+package info.tonyl.terminal.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class UpdateCoalescerTest {
+    private static final long MAX_STALENESS_MS = 1000;
+
+    private final UpdateCoalescer mCoalescer = new UpdateCoalescer(MAX_STALENESS_MS);
+
+    @Test
+    public void waitsForATickThatComesSoonEnough() {
+        assertEquals(UpdateCoalescer.NO_FRAME, mCoalescer.markDirty(0, 400));
+        assertTrue(mCoalescer.isDirty());
+    }
+
+    @Test
+    public void defersAFrameWhenNoTickIsComing() {
+        assertEquals(MAX_STALENESS_MS, mCoalescer.markDirty(0, UpdateCoalescer.NO_FRAME));
+    }
+
+    @Test
+    public void defersAFrameWhenTheTickIsTooFarOff() {
+        assertEquals(MAX_STALENESS_MS, mCoalescer.markDirty(0, 60000));
+    }
+
+    @Test
+    public void laterUpdatesGoWithTheSameFrame() {
+        assertEquals(MAX_STALENESS_MS, mCoalescer.markDirty(0, UpdateCoalescer.NO_FRAME));
+        assertEquals(UpdateCoalescer.NO_FRAME, mCoalescer.markDirty(300, UpdateCoalescer.NO_FRAME));
+    }
+
+    @Test
+    public void drawingAFrameClearsEverything() {
+        mCoalescer.markDirty(0, 400);
+        mCoalescer.onFrameDrawn();
+        assertFalse(mCoalescer.isDirty());
+        assertEquals(MAX_STALENESS_MS, mCoalescer.markDirty(500, UpdateCoalescer.NO_FRAME));
+    }
+
+    @Test
+    public void updatesAfterACancelledTickGetTheirOwnFrame() {
+        // Waiting on the tick, which then gets cancelled when the face goes into ambient
+        assertEquals(UpdateCoalescer.NO_FRAME, mCoalescer.markDirty(0, 400));
+        mCoalescer.onFrameCancelled();
+        assertTrue(mCoalescer.isDirty());
+
+        // Without a tick coming, the next update has to ask for a frame itself
+        assertEquals(MAX_STALENESS_MS, mCoalescer.markDirty(600, UpdateCoalescer.NO_FRAME));
+    }
+}
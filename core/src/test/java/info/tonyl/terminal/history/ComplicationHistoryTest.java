@@ -0,0 +1,73 @@
+package info.tonyl.terminal.history;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import info.tonyl.terminal.text.CharText;
+
+public class ComplicationHistoryTest {
+    private static final long MINUTE_MS = 60 * 1000;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+
+    @Test
+    public void readKeepsStoredStepsWhenTheCountCarriedOn() throws IOException {
+        ComplicationHistory stored = new ComplicationHistory();
+        stored.addSteps(0, "1000");
+
+        ComplicationHistory history = new ComplicationHistory();
+        history.addSteps(30 * MINUTE_MS, "1,600");
+        readStored(history, stored);
+
+        assertEquals(" +1200/h", stepRate(history, 30 * MINUTE_MS));
+    }
+
+    @Test
+    public void readDropsStoredStepsFromBeforeAReset() throws IOException {
+        ComplicationHistory stored = new ComplicationHistory();
+        stored.addSteps(0, "17000");
+        stored.addSteps(30 * MINUTE_MS, "17800");
+
+        // The count went back to zero at midnight, after the stored samples were saved
+        ComplicationHistory history = new ComplicationHistory();
+        history.addSteps(40 * MINUTE_MS, "0");
+        history.addSteps(50 * MINUTE_MS, "100");
+        readStored(history, stored);
+
+        assertEquals(" +600/h", stepRate(history, 50 * MINUTE_MS));
+    }
+
+    @Test
+    public void readDropsStoredBatteryFromBeforeACharge() throws IOException {
+        ComplicationHistory stored = new ComplicationHistory();
+        stored.addBattery(0, 50);
+        stored.addBattery(2 * HOUR_MS, 40);
+
+        ComplicationHistory history = new ComplicationHistory();
+        history.addBattery(3 * HOUR_MS, 90);
+        history.addBattery(4 * HOUR_MS, 89);
+        readStored(history, stored);
+
+        CharText out = new CharText(16);
+        history.appendBatteryRemaining(4 * HOUR_MS, out);
+        assertEquals(" ~89h", out.toString());
+    }
+
+    private static void readStored(ComplicationHistory history, ComplicationHistory stored) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        stored.writeTo(new DataOutputStream(bytes));
+        history.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    private static String stepRate(ComplicationHistory history, long now) {
+        CharText out = new CharText(16);
+        history.appendStepRate(now, out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,63 @@
+package info.tonyl.terminal.perf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PerfStatsTest {
+    private static final long FAST_NANOS = 1000000;
+    private static final long SLOW_NANOS = 3000000;
+
+    private final PerfStats mStats = new PerfStats();
+
+    /**
+     * Draws frames the way the engine would, each one the way it's told to, and returns how many
+     * were drawn with render nodes.
+     */
+    private int drawFrames(int frames, long renderNodeNanos, long softwareNanos) {
+        int renderNodeFrames = 0;
+        for (int i = 0; i < frames; i++) {
+            boolean renderNodes = mStats.shouldUseRenderNodes();
+            mStats.recordInteractiveCpu(renderNodes, renderNodes ? renderNodeNanos : softwareNanos);
+            if (renderNodes) {
+                renderNodeFrames++;
+            }
+        }
+        return renderNodeFrames;
+    }
+
+    @Test
+    public void takesTurnsUntilBothHaveBeenMeasured() {
+        int frames = PerfStats.DRAW_PATH_TRIAL_FRAMES * 2;
+        assertEquals(PerfStats.DRAW_PATH_TRIAL_FRAMES, drawFrames(frames, SLOW_NANOS, FAST_NANOS));
+        assertEquals(PerfStats.DRAW_PATH_TRIAL_FRAMES, mStats.getSoftwareCpuTimes().getCount());
+    }
+
+    @Test
+    public void keepsRenderNodesWhenTheyreCheaper() {
+        drawFrames(PerfStats.DRAW_PATH_TRIAL_FRAMES * 2, FAST_NANOS, SLOW_NANOS);
+        assertEquals(100, drawFrames(100, FAST_NANOS, SLOW_NANOS));
+    }
+
+    @Test
+    public void keepsSoftwareWhenItsCheaper() {
+        drawFrames(PerfStats.DRAW_PATH_TRIAL_FRAMES * 2, SLOW_NANOS, FAST_NANOS);
+        assertEquals(0, drawFrames(100, SLOW_NANOS, FAST_NANOS));
+    }
+
+    @Test
+    public void keepsSoftwareOnATie() {
+        drawFrames(PerfStats.DRAW_PATH_TRIAL_FRAMES * 2, FAST_NANOS, FAST_NANOS);
+        assertFalse(mStats.shouldUseRenderNodes());
+    }
+
+    @Test
+    public void measuresAgainAfterAReset() {
+        drawFrames(PerfStats.DRAW_PATH_TRIAL_FRAMES * 2, SLOW_NANOS, FAST_NANOS);
+        mStats.reset();
+        mStats.recordInteractiveCpu(false, FAST_NANOS);
+        assertTrue(mStats.shouldUseRenderNodes());
+    }
+}
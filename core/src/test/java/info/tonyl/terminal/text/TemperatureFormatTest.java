@@ -0,0 +1,25 @@
+package info.tonyl.terminal.text;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import info.tonyl.terminal.constants.ComplicationDataConstants;
+import info.tonyl.terminal.constants.TemperatureConstants;
+
+public class TemperatureFormatTest {
+    @Test
+    public void setUnitBeforeAnyTemperatureLeavesNoInfo() {
+        TemperatureFormat format = new TemperatureFormat();
+        assertEquals(ComplicationDataConstants.NO_INFO,
+                format.setUnit(TemperatureConstants.UNIT_CELSIUS).toString());
+    }
+
+    @Test
+    public void setUnitRedoesTheLastTemperature() {
+        TemperatureFormat format = new TemperatureFormat();
+        assertEquals("72°", format.format("72 ℉").toString());
+        assertEquals("22°", format.setUnit(TemperatureConstants.UNIT_CELSIUS).toString());
+        assertEquals("72°", format.setUnit(TemperatureConstants.UNIT_AS_PROVIDED).toString());
+    }
+}
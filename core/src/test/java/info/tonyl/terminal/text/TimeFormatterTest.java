@@ -0,0 +1,90 @@
+package info.tonyl.terminal.text;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Checks that TimeFormatter writes exactly what SimpleDateFormat would, in every locale, in 12 and
+ * 24 hour mode, in zones with DST and with half and quarter hour offsets.
+ */
+public class TimeFormatterTest {
+    private static final String[] ZONES = {
+            "UTC",
+            "America/New_York",
+            "Europe/London",
+            "Asia/Kolkata",
+            "Asia/Kathmandu",
+            "America/St_Johns",
+            "Australia/Lord_Howe",
+            "Pacific/Chatham"};
+
+    // 2023-01-01 to 2025-01-01 UTC
+    private static final long START = 1672531200000L;
+    private static final long END = 1735689600000L;
+
+    private static final int RANDOM_INSTANTS = 12;
+
+    @Test
+    public void matchesSimpleDateFormat() {
+        Random random = new Random(42);
+        for (String id : ZONES) {
+            TimeZone zone = TimeZone.getTimeZone(id);
+            List<Long> instants = getInstants(id, random);
+            for (Locale locale : Locale.getAvailableLocales()) {
+                for (boolean use24Hour : new boolean[]{false, true}) {
+                    check(zone, locale, use24Hour, instants);
+                }
+            }
+        }
+    }
+
+    private static void check(TimeZone zone, Locale locale, boolean use24Hour, List<Long> instants) {
+        TimeFormatter formatter = new TimeFormatter(zone, locale, use24Hour);
+        TimeReference reference = new TimeReference(zone, locale, use24Hour);
+        CharText out = new CharText(64);
+        for (long now : instants) {
+            for (boolean showSeconds : new boolean[]{true, false}) {
+                String message = zone.getID() + " " + locale + (use24Hour ? " 24h " : " 12h ")
+                        + Instant.ofEpochMilli(now);
+                assertEquals(message, reference.format(now, showSeconds),
+                        formatter.format(now, showSeconds, out).toString());
+            }
+        }
+    }
+
+    /**
+     * Instants on and around every transition in the zone, and some random ones in between. They're
+     * in no particular order, so the formatter's caches get jumped around both ways.
+     */
+    private static List<Long> getInstants(String id, Random random) {
+        List<Long> instants = new ArrayList<>();
+        ZoneRules rules = TimeZone.getTimeZone(id).toZoneId().getRules();
+        ZoneOffsetTransition transition = rules.nextTransition(Instant.ofEpochMilli(START));
+        while (transition != null && transition.toEpochSecond() * 1000 < END) {
+            long at = transition.toEpochSecond() * 1000;
+            for (long delta : new long[]{-60000, -1001, -1, 0, 1, 999, 59999, 60000}) {
+                instants.add(at + delta);
+            }
+            transition = rules.nextTransition(transition.getInstant());
+        }
+        for (int i = 0; i < RANDOM_INSTANTS; i++) {
+            instants.add(START + (long) (random.nextDouble() * (END - START)));
+        }
+        // Midnight and noon, where the 12 hour clock wraps
+        instants.add(START);
+        instants.add(START + 12 * 60 * 60 * 1000L);
+        Collections.shuffle(instants, random);
+        return instants;
+    }
+}
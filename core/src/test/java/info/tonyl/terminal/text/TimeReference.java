@@ -0,0 +1,45 @@
+package info.tonyl.terminal.text;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Formats the time the way TimeText did before TimeFormatter, with SimpleDateFormat for everything
+ * except the seconds (which were always written as ASCII digits), to check TimeFormatter against.
+ */
+class TimeReference {
+    private final SimpleDateFormat mHourMinuteFormat;
+    private final SimpleDateFormat mAmPmFormat;
+    private final SimpleDateFormat mTimezoneFormat;
+    private final TimeZone mZone;
+
+    TimeReference(TimeZone zone, Locale locale, boolean use24Hour) {
+        mZone = zone;
+        mHourMinuteFormat = new SimpleDateFormat(use24Hour ? "HH:mm:" : "hh:mm:", locale);
+        mHourMinuteFormat.setTimeZone(zone);
+        mAmPmFormat = use24Hour ? null : new SimpleDateFormat(" a", locale);
+        if (mAmPmFormat != null) {
+            mAmPmFormat.setTimeZone(zone);
+        }
+        mTimezoneFormat = new SimpleDateFormat(" z", locale);
+        mTimezoneFormat.setTimeZone(zone);
+    }
+
+    String format(long now, boolean showSeconds) {
+        Date date = new Date(now);
+        StringBuilder sb = new StringBuilder(mHourMinuteFormat.format(date));
+        if (showSeconds) {
+            int second = (int) (Math.floorMod(now + mZone.getOffset(now), 60000L) / 1000);
+            sb.append((char) ('0' + second / 10)).append((char) ('0' + second % 10));
+        } else {
+            sb.append("--");
+        }
+        if (mAmPmFormat != null) {
+            sb.append(mAmPmFormat.format(date));
+        }
+        sb.append(mTimezoneFormat.format(date));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,121 @@
+package info.tonyl.terminal.text;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Checks the transitions ZoneTransitions finds against java.time, and that the time is right on
+ * either side of a DST switch and after the zone changes.
+ */
+public class ZoneTransitionsTest {
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    // Has to match the horizon in ZoneTransitions
+    private static final long HORIZON_MS = 400 * DAY_MS;
+
+    // 2024-03-10 07:00 UTC, when New York springs forward, and 2024-11-03 06:00 UTC, when it falls
+    // back
+    private static final long SPRING_FORWARD = 1710054000000L;
+    private static final long FALL_BACK = 1730613600000L;
+
+    private static final long STEP_MS = 250;
+    private static final long AROUND_MS = 2 * 60 * 1000L;
+
+    private final TimeZone mDefaultZone = TimeZone.getDefault();
+    private final Locale mDefaultLocale = Locale.getDefault();
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(mDefaultZone);
+        Locale.setDefault(mDefaultLocale);
+    }
+
+    @Test
+    public void nextMatchesZoneRules() {
+        long[] starts = {0, 1672531200000L, 1710053999999L, 1730613600000L};
+        for (String id : ZoneId.getAvailableZoneIds()) {
+            TimeZone zone = TimeZone.getTimeZone(id);
+            ZoneRules rules = ZoneId.of(id).getRules();
+            for (long from : starts) {
+                ZoneOffsetTransition transition = rules.nextTransition(Instant.ofEpochMilli(from));
+                long expected = from + HORIZON_MS;
+                if (transition != null && transition.toEpochSecond() * 1000 < expected) {
+                    expected = transition.toEpochSecond() * 1000;
+                }
+                assertEquals(id + " from " + Instant.ofEpochMilli(from),
+                        expected, ZoneTransitions.next(zone, from));
+            }
+        }
+    }
+
+    @Test
+    public void nextFromTheTransitionFindsTheOneAfter() {
+        TimeZone zone = TimeZone.getTimeZone("America/New_York");
+        assertEquals(SPRING_FORWARD, ZoneTransitions.next(zone, SPRING_FORWARD - 1));
+        assertEquals(FALL_BACK, ZoneTransitions.next(zone, SPRING_FORWARD));
+    }
+
+    @Test
+    public void formatsAcrossSpringForward() {
+        checkAround(SPRING_FORWARD);
+    }
+
+    @Test
+    public void formatsAcrossFallBack() {
+        checkAround(FALL_BACK);
+    }
+
+    /**
+     * Formats every step from a couple of minutes before the switch to a couple after, going
+     * forwards and then backwards in time, with the same formatter throughout.
+     */
+    private static void checkAround(long transition) {
+        TimeZone zone = TimeZone.getTimeZone("America/New_York");
+        for (boolean use24Hour : new boolean[]{false, true}) {
+            TimeFormatter formatter = new TimeFormatter(zone, Locale.US, use24Hour);
+            TimeReference reference = new TimeReference(zone, Locale.US, use24Hour);
+            CharText out = new CharText(64);
+            for (long now = transition - AROUND_MS; now <= transition + AROUND_MS; now += STEP_MS) {
+                assertEquals(Instant.ofEpochMilli(now).toString(),
+                        reference.format(now, true), formatter.format(now, true, out).toString());
+            }
+            for (long now = transition + AROUND_MS; now >= transition - AROUND_MS; now -= STEP_MS) {
+                assertEquals(Instant.ofEpochMilli(now).toString(),
+                        reference.format(now, true), formatter.format(now, true, out).toString());
+            }
+        }
+    }
+
+    @Test
+    public void picksUpZoneChangeOnNextFrame() {
+        Locale.setDefault(Locale.US);
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        TimeText timeText = new TimeText();
+        long now = SPRING_FORWARD + DAY_MS;
+        assertEquals("03:00:00 AM EDT", timeText.makeTime(now, false).toString());
+
+        // Nothing changes until it's told to look again
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Kolkata"));
+        assertEquals("03:00:01 AM EDT", timeText.makeTime(now + 1000, false).toString());
+        assertEquals("2024-03-11 Mon", timeText.makeDate(now + 1000).toString());
+
+        timeText.onTimezoneChanged();
+        assertEquals("12:30:02 PM IST", timeText.makeTime(now + 2000, false).toString());
+        assertEquals("2024-03-11 Mon", timeText.makeDate(now + 2000).toString());
+
+        // Going west across midnight changes the date as well
+        TimeZone.setDefault(TimeZone.getTimeZone("Pacific/Honolulu"));
+        timeText.onTimezoneChanged();
+        assertEquals("09:00:03 PM HST", timeText.makeTime(now + 3000, false).toString());
+        assertEquals("2024-03-10 Sun", timeText.makeDate(now + 3000).toString());
+    }
+}